@@ -0,0 +1,33 @@
+#!/bin/sh
+# Runs the redirect load test against the docker-compose stack once with platform threads and once with
+# virtual threads, then prints sustained redirects/sec and p99 latency for both modes side by side.
+# Rate limiting is switched off, all traffic comes from one client IP and would otherwise be answered with 429s.
+set -e
+
+cd "$(dirname "$0")/.."
+
+MAX_RATE=${MAX_RATE:-20000}
+STAGE_DURATION=${STAGE_DURATION:-30s}
+
+run_mode() {
+    mode=$1
+    virtual=$2
+    echo "==> Starting stack with VIRTUAL_THREADS_ENABLED=$virtual"
+    VIRTUAL_THREADS_ENABLED=$virtual APP_RATE_LIMIT_ENABLED=false docker compose up -d --build --force-recreate app mongodb redis
+    until curl -sf http://localhost:8080/actuator/health > /dev/null; do sleep 2; done
+
+    docker run --rm --network host -v "$PWD/loadtest:/scripts" -w /scripts grafana/k6 run \
+        -e BASE_URL=http://localhost:8080 -e MODE="$mode" \
+        -e MAX_RATE="$MAX_RATE" -e STAGE_DURATION="$STAGE_DURATION" \
+        redirect-load-test.js
+}
+
+run_mode platform false
+run_mode virtual true
+
+echo
+echo "mode       redirects/sec   p99 (ms)   failed"
+for mode in platform virtual; do
+    jq -r '[.mode, (.requestsPerSecond|floor), (.p99Ms*100|floor/100), .failedRate] | @tsv' \
+        "loadtest/results-$mode.json"
+done
@@ -0,0 +1,63 @@
+// Ramps redirect traffic until the service saturates and reports sustained throughput and p99 latency.
+// Usage: k6 run -e BASE_URL=http://localhost:8080 -e MAX_RATE=20000 redirect-load-test.js
+// Run the target with APP_RATE_LIMIT_ENABLED=false, the per-IP limits would reject most of this single-client load.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const LINKS = parseInt(__ENV.LINKS || '1000', 10);
+const MAX_RATE = parseInt(__ENV.MAX_RATE || '20000', 10);
+const STAGE = __ENV.STAGE_DURATION || '30s';
+
+export const options = {
+    discardResponseBodies: true,
+    scenarios: {
+        redirects: {
+            executor: 'ramping-arrival-rate',
+            startRate: Math.max(1, Math.floor(MAX_RATE / 10)),
+            timeUnit: '1s',
+            preAllocatedVUs: 500,
+            maxVUs: 5000,
+            stages: [
+                { target: Math.floor(MAX_RATE / 4), duration: STAGE },
+                { target: Math.floor(MAX_RATE / 2), duration: STAGE },
+                { target: MAX_RATE, duration: STAGE },
+                { target: MAX_RATE, duration: STAGE },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const codes = [];
+    for (let i = 0; i < LINKS; i++) {
+        const res = http.post(`${BASE_URL}/api/shorten`,
+            JSON.stringify({ longUrl: `https://loadtest.example.com/${i}` }),
+            { headers: { 'Content-Type': 'application/json' } });
+        codes.push(JSON.parse(res.body).shortCode);
+    }
+    return { codes };
+}
+
+export default function (data) {
+    const code = data.codes[Math.floor(Math.random() * data.codes.length)];
+    const res = http.get(`${BASE_URL}/${code}`, { redirects: 0, tags: { name: 'redirect' } });
+    check(res, { 'is redirect': (r) => r.status === 302 || r.status === 301 || r.status === 307 || r.status === 308 });
+}
+
+export function handleSummary(data) {
+    const duration = data.metrics.http_req_duration.values;
+    const summary = {
+        mode: __ENV.MODE || 'unknown',
+        requestsPerSecond: data.metrics.http_reqs.values.rate,
+        droppedIterations: data.metrics.dropped_iterations ? data.metrics.dropped_iterations.values.count : 0,
+        failedRate: data.metrics.http_req_failed.values.rate,
+        p50Ms: duration['p(50)'],
+        p99Ms: duration['p(99)'],
+    };
+    return {
+        stdout: JSON.stringify(summary) + '\n',
+        [`results-${summary.mode}.json`]: JSON.stringify(summary, null, 2),
+    };
+}
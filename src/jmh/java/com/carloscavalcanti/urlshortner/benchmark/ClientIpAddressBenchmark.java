@@ -0,0 +1,32 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class ClientIpAddressBenchmark {
+
+    private final String forwardedChain = "203.0.113.7, 70.41.3.18, 150.172.238.178";
+    private final String realIp = "198.51.100.23";
+    private final String remoteAddr = "10.0.0.1";
+    private final ClientIpAddressResolver resolver = new ClientIpAddressResolver(List.of("10.0.0.0/8"));
+
+    @Benchmark
+    public String forwardedForChain() {
+        return resolver.resolve(forwardedChain, null, remoteAddr);
+    }
+
+    @Benchmark
+    public String realIpHeader() {
+        return resolver.resolve(null, realIp, remoteAddr);
+    }
+
+    @Benchmark
+    public String remoteAddressOnly() {
+        return resolver.resolve(null, null, remoteAddr);
+    }
+}
@@ -0,0 +1,72 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTO;
+import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTOMapper;
+import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTOMapperImpl;
+import com.carloscavalcanti.urlshortner.dto.ClickSeriesDTO;
+import com.carloscavalcanti.urlshortner.dto.ClickSeriesPointDTO;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTO;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTOMapper;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTOMapperImpl;
+import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    @Param({"0", "100", "10000"})
+    private int recentClicks;
+
+    private final ShortenUrlResponseDTOMapper shortenMapper = new ShortenUrlResponseDTOMapperImpl();
+    private final AnalyticsResponseDTOMapper analyticsMapper = new AnalyticsResponseDTOMapperImpl();
+
+    private UrlMapping mapping;
+    private UrlMappingSummary summary;
+    private List<ClickInfo> clicks;
+    private ClickSeriesDTO series;
+
+    @Setup
+    public void setUp() {
+        mapping = UrlMapping.builder()
+                .shortCode("abc123")
+                .originalUrl("https://www.example.com/some/long/path?utm_source=benchmark")
+                .clickCount((long) recentClicks)
+                .build();
+        summary = new UrlMappingSummary(mapping.getShortCode(), mapping.getOriginalUrl(), mapping.getClickCount(),
+                mapping.getCreatedAt(), mapping.isActive());
+
+        clicks = new ArrayList<>(recentClicks);
+        var now = LocalDateTime.now();
+        for (int i = 0; i < recentClicks; i++) {
+            clicks.add(new ClickInfo(now.minusSeconds(i), "Mozilla/5.0 (X11; Linux x86_64)", "192.168.1." + i % 255));
+        }
+
+        List<ClickSeriesPointDTO> points = new ArrayList<>(24);
+        for (int i = 0; i < 24; i++) {
+            points.add(new ClickSeriesPointDTO(now.minusHours(i), recentClicks, (long) recentClicks));
+        }
+        series = new ClickSeriesDTO(RollupGranularity.HOUR, now.minusDays(1), now, recentClicks, (long) recentClicks,
+                points, List.of());
+    }
+
+    @Benchmark
+    public ShortenUrlResponseDTO shortenResponse() {
+        return shortenMapper.toDTO(mapping, "http://localhost:8080");
+    }
+
+    @Benchmark
+    public AnalyticsResponseDTO analyticsResponse() {
+        return analyticsMapper.toDTO(summary, summary.persistedClicks(), (long) recentClicks, clicks, series);
+    }
+}
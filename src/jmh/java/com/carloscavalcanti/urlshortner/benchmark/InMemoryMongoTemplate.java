@@ -0,0 +1,60 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Just enough of MongoTemplate for the benchmarks: a counter for range leasing and a fixed short code stream
+class InMemoryMongoTemplate extends MongoTemplate {
+
+    private final AtomicLong counter = new AtomicLong();
+    private final List<String> shortCodes;
+
+    InMemoryMongoTemplate(final List<String> shortCodes) {
+        super(noOpFactory());
+        this.shortCodes = List.copyOf(shortCodes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T findAndModify(final Query query, final UpdateDefinition update, final FindAndModifyOptions options,
+                               final Class<T> entityClass, final String collectionName) {
+        long increment = ((Number) ((Document) update.getUpdateObject().get("$inc")).get("value")).longValue();
+        return (T) new Document("_id", "short_code").append("value", counter.addAndGet(increment));
+    }
+
+    @Override
+    public long estimatedCount(final String collectionName) {
+        return shortCodes.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Stream<T> stream(final Query query, final Class<T> entityType, final String collectionName) {
+        return shortCodes.stream().map(code -> (T) new Document("shortCode", code));
+    }
+
+    private static MongoDatabaseFactory noOpFactory() {
+        return (MongoDatabaseFactory) Proxy.newProxyInstance(
+                MongoDatabaseFactory.class.getClassLoader(),
+                new Class<?>[] {MongoDatabaseFactory.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                    case "getCodecRegistry" -> MongoClientSettings.getDefaultCodecRegistry();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "NoOpMongoDatabaseFactory";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
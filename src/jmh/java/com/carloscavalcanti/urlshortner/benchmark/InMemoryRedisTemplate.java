@@ -0,0 +1,40 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Map-backed stand-in for the Redis L2 so the benchmarks measure our code, not the network
+class InMemoryRedisTemplate<V> extends RedisTemplate<String, V> {
+
+    private final Map<Object, Object> store = new ConcurrentHashMap<>();
+    private final ValueOperations<String, V> valueOperations;
+
+    @SuppressWarnings("unchecked")
+    InMemoryRedisTemplate() {
+        this.valueOperations = (ValueOperations<String, V>) Proxy.newProxyInstance(
+                ValueOperations.class.getClassLoader(),
+                new Class<?>[] {ValueOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> store.get(args[0]);
+                    case "set" -> {
+                        store.put(args[0], args[1]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    public ValueOperations<String, V> opsForValue() {
+        return valueOperations;
+    }
+
+    @Override
+    public Boolean delete(final String key) {
+        return store.remove(key) != null;
+    }
+}
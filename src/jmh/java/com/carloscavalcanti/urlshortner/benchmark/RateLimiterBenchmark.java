@@ -0,0 +1,50 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.ratelimit.ClusterRateLimiter;
+import com.carloscavalcanti.urlshortner.ratelimit.RateLimitScope;
+import com.carloscavalcanti.urlshortner.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Allowed-path cost of the limiter, the cluster window only adds a block list lookup and an in-memory count
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private final String[] clientIps = new String[CLIENTS];
+
+    private RateLimiter rateLimiter;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIps[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+        // Limits high enough that every call takes the allowed path; sync is never scheduled here
+        var clusterRateLimiter = new ClusterRateLimiter(new StringRedisTemplate(), true, Duration.ofMinutes(1));
+        rateLimiter = new RateLimiter(clusterRateLimiter, new SimpleMeterRegistry(), true,
+                1e9, 1_000_000, Long.MAX_VALUE, 1e9, 1_000_000, Long.MAX_VALUE, CLIENTS * 2L, Duration.ofMinutes(10));
+    }
+
+    @Benchmark
+    public long redirectByClientIp() {
+        return rateLimiter.tryAcquire(RateLimitScope.REDIRECT, randomClientIp(), null);
+    }
+
+    @Benchmark
+    public long shortenByClientIpAndApiKey() {
+        return rateLimiter.tryAcquire(RateLimitScope.SHORTEN, randomClientIp(), "benchmark-key");
+    }
+
+    private String randomClientIp() {
+        return clientIps[ThreadLocalRandom.current().nextInt(CLIENTS)];
+    }
+}
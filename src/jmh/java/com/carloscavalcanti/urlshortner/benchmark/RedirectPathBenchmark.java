@@ -0,0 +1,156 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTOMapperImpl;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTOMapperImpl;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.UrlShortenerService;
+import com.carloscavalcanti.urlshortner.service.analytics.ClickAnalyticsService;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.click.BackPressurePolicy;
+import com.carloscavalcanti.urlshortner.service.click.ClickAggregator;
+import com.carloscavalcanti.urlshortner.service.click.ClickLog;
+import com.carloscavalcanti.urlshortner.service.click.ClickTrackingService;
+import com.carloscavalcanti.urlshortner.service.click.StripedClickCounter;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.click.UserAgentDictionary;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import com.carloscavalcanti.urlshortner.service.dedup.UrlNormalizer;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics;
+import com.carloscavalcanti.urlshortner.service.shortcode.RandomShortCodeGenerator;
+import com.carloscavalcanti.urlshortner.service.snapshot.SnapshotRedirectStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Full UrlShortenerService.redirectAndTrack path against in-memory repository, Redis and Mongo stand-ins
+@State(Scope.Benchmark)
+public class RedirectPathBenchmark {
+
+    private static final int MAPPINGS = 10_000;
+
+    private final Map<String, UrlMapping> mappings = new ConcurrentHashMap<>();
+    private final List<String> shortCodes = new ArrayList<>(MAPPINGS);
+
+    private InMemoryRedisTemplate<ResolvedUrl> redisTemplate;
+    private UrlResolutionCache urlResolutionCache;
+    private ClickTrackingService clickTrackingService;
+    private UrlShortenerService urlShortenerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var generator = new RandomShortCodeGenerator(6);
+        for (int i = 0; i < MAPPINGS; i++) {
+            var mapping = UrlMapping.builder()
+                    .shortCode(generator.next())
+                    .originalUrl("https://www.example.com/" + i)
+                    .build();
+            mappings.put(mapping.getShortCode(), mapping);
+            shortCodes.add(mapping.getShortCode());
+        }
+
+        var meterRegistry = new SimpleMeterRegistry();
+        var stringRedisTemplate = new StringRedisTemplate();
+        redisTemplate = new InMemoryRedisTemplate<>();
+        urlResolutionCache = new UrlResolutionCache(redisTemplate, stringRedisTemplate, meterRegistry,
+                100_000, Duration.ofMinutes(5), Duration.ofHours(1));
+
+        var shortCodeFilter = new ShortCodeFilter(new InMemoryMongoTemplate(shortCodes), stringRedisTemplate,
+                meterRegistry, MAPPINGS, 0.01, 10_000, Duration.ofSeconds(30));
+        shortCodeFilter.rebuild();
+
+        clickTrackingService = new ClickTrackingService(List.of(batch -> { }), List.of(counts -> { }),
+                new ClickAggregator(List.of(counts -> { }), meterRegistry, 100_000),
+                new ClickLog(meterRegistry, false, Path.of("unused"), DataSize.ofMegabytes(64), DataSize.ofMegabytes(1),
+                        Duration.ofMillis(10), true),
+                meterRegistry, 100_000, 500,
+                Duration.ofMillis(100), BackPressurePolicy.DROP, Duration.ZERO, 1, false, Duration.ofSeconds(1),
+                Duration.ofMinutes(10), false);
+        clickTrackingService.start();
+
+        var uniqueVisitorCounter = new UniqueVisitorCounter(stringRedisTemplate, Duration.ofDays(90),
+                Duration.ofDays(400));
+
+        urlShortenerService = new UrlShortenerService(
+                inMemoryRepository(),
+                new ClickAnalyticsService(new InMemoryMongoTemplate(List.of()), uniqueVisitorCounter,
+                        new UserAgentDictionary(new InMemoryMongoTemplate(List.of()), 10_000), 100, 1440, 10),
+                new AnalyticsResponseDTOMapperImpl(),
+                new ShortenUrlResponseDTOMapperImpl(),
+                clickTrackingService,
+                urlResolutionCache,
+                shortCodeFilter,
+                generator,
+                new UrlNormalizer(true, true, true, true),
+                new ShortenDedupCache(stringRedisTemplate, false, false, 1, Duration.ofMinutes(1)),
+                new StripedClickCounter(new InMemoryMongoTemplate(List.of()), stringRedisTemplate, false, 8, 500),
+                uniqueVisitorCounter,
+                new ShortenerMetrics(meterRegistry),
+                new SnapshotRedirectStore(meterRegistry, false, Path.of("unused"), Duration.ofMinutes(1)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clickTrackingService.stop();
+    }
+
+    @Benchmark
+    public ResolvedUrl localCacheHit() {
+        return urlShortenerService.redirectAndTrack(randomCode(), "Mozilla/5.0", "203.0.113.7");
+    }
+
+    @Benchmark
+    public ResolvedUrl remoteCacheHit() {
+        var shortCode = randomCode();
+        urlResolutionCache.invalidateLocal(shortCode);
+        return urlShortenerService.redirectAndTrack(shortCode, "Mozilla/5.0", "203.0.113.7");
+    }
+
+    @Benchmark
+    public ResolvedUrl repositoryLookup() {
+        var shortCode = randomCode();
+        urlResolutionCache.invalidateLocal(shortCode);
+        redisTemplate.delete(UrlResolutionCache.KEY_PREFIX + shortCode);
+        return urlShortenerService.redirectAndTrack(shortCode, "Mozilla/5.0", "203.0.113.7");
+    }
+
+    @Benchmark
+    public ResolvedUrl unknownCodeRejectedByFilter() {
+        return urlShortenerService.redirectAndTrack("zz" + ThreadLocalRandom.current().nextInt(10_000),
+                "Mozilla/5.0", "203.0.113.7");
+    }
+
+    private String randomCode() {
+        return shortCodes.get(ThreadLocalRandom.current().nextInt(MAPPINGS));
+    }
+
+    private UrlMappingRepository inMemoryRepository() {
+        return (UrlMappingRepository) Proxy.newProxyInstance(
+                UrlMappingRepository.class.getClassLoader(),
+                new Class<?>[] {UrlMappingRepository.class},
+                (proxy, method, args) -> {
+                    if ("findResolvedUrlByShortCode".equals(method.getName())) {
+                        return Optional.ofNullable(mappings.get((String) args[0])).map(ResolvedUrl::from);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
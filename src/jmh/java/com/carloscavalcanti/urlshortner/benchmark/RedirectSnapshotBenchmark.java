@@ -0,0 +1,78 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.service.shortcode.RandomShortCodeGenerator;
+import com.carloscavalcanti.urlshortner.service.snapshot.RedirectSnapshotWriter;
+import com.carloscavalcanti.urlshortner.service.snapshot.SnapshotRedirectStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+// Lookups against the memory-mapped snapshot, with and without a pending delta for the code
+@State(Scope.Benchmark)
+public class RedirectSnapshotBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int mappings;
+
+    private String[] shortCodes;
+    private Path directory;
+    private SnapshotRedirectStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var generator = new RandomShortCodeGenerator(7);
+        shortCodes = IntStream.range(0, mappings).mapToObj(i -> generator.next()).distinct().sorted()
+                .toArray(String[]::new);
+
+        directory = Files.createTempDirectory("redirect-snapshot");
+        var path = directory.resolve("redirect-snapshot.bin");
+        RedirectSnapshotWriter.write(path, Arrays.stream(shortCodes)
+                .map(shortCode -> UrlMapping.builder()
+                        .shortCode(shortCode)
+                        .originalUrl("https://www.example.com/articles/" + shortCode)
+                        .build())
+                .iterator(), Instant.now());
+
+        store = new SnapshotRedirectStore(new SimpleMeterRegistry(), true, path, Duration.ofMinutes(1));
+        store.load();
+        store.applyChange(shortCodes[0], new ResolvedUrl("https://www.example.com/moved", true, null),
+                Instant.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("redirect-snapshot.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public ResolvedUrl snapshotHit() {
+        return store.find(shortCodes[ThreadLocalRandom.current().nextInt(shortCodes.length)]);
+    }
+
+    @Benchmark
+    public ResolvedUrl deltaHit() {
+        return store.find(shortCodes[0]);
+    }
+
+    @Benchmark
+    public ResolvedUrl snapshotMiss() {
+        return store.find("-missing");
+    }
+}
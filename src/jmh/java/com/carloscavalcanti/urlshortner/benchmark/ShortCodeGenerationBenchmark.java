@@ -0,0 +1,33 @@
+package com.carloscavalcanti.urlshortner.benchmark;
+
+import com.carloscavalcanti.urlshortner.service.shortcode.RandomShortCodeGenerator;
+import com.carloscavalcanti.urlshortner.service.shortcode.RangeShortCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class ShortCodeGenerationBenchmark {
+
+    private RandomShortCodeGenerator randomGenerator;
+    private RangeShortCodeGenerator rangeGenerator;
+
+    @Setup
+    public void setUp() {
+        randomGenerator = new RandomShortCodeGenerator(6);
+        rangeGenerator = new RangeShortCodeGenerator(new InMemoryMongoTemplate(List.of()), 6, 1000, "42", true);
+    }
+
+    @Benchmark
+    public String randomStrategy() {
+        return randomGenerator.next();
+    }
+
+    @Benchmark
+    public String rangeStrategy() {
+        return rangeGenerator.next();
+    }
+}
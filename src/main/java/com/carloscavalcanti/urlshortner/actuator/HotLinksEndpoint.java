@@ -0,0 +1,22 @@
+package com.carloscavalcanti.urlshortner.actuator;
+
+import com.carloscavalcanti.urlshortner.service.cache.HotLinkTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "hotlinks")
+@RequiredArgsConstructor
+public class HotLinksEndpoint {
+
+    private final HotLinkTracker hotLinkTracker;
+
+    @ReadOperation
+    public Map<String, Object> hotLinks() {
+        return hotLinkTracker.stats();
+    }
+}
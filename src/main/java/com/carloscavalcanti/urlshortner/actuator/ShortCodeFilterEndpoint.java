@@ -0,0 +1,22 @@
+package com.carloscavalcanti.urlshortner.actuator;
+
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "shortcodefilter")
+@RequiredArgsConstructor
+public class ShortCodeFilterEndpoint {
+
+    private final ShortCodeFilter shortCodeFilter;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return shortCodeFilter.stats();
+    }
+}
@@ -0,0 +1,24 @@
+package com.carloscavalcanti.urlshortner.actuator;
+
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// A rebuild streams the whole url_mappings collection, so it is only offered over JMX, never on the web endpoint
+@Component
+@EndpointJmxExtension(endpoint = ShortCodeFilterEndpoint.class)
+@RequiredArgsConstructor
+public class ShortCodeFilterJmxExtension {
+
+    private final ShortCodeFilter shortCodeFilter;
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        shortCodeFilter.rebuild();
+        return shortCodeFilter.stats();
+    }
+}
@@ -0,0 +1,81 @@
+package com.carloscavalcanti.urlshortner.config;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import com.carloscavalcanti.urlshortner.service.click.IpAddressCodec;
+import com.carloscavalcanti.urlshortner.service.click.UserAgentDictionary;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.util.Date;
+
+// Hand-written BSON mapping for click entries, {ts: Date, ua: Int64, ip: Binary}, so pushing and reading
+// clicks skips reflective entity mapping. Entries written before interning hold ua and ip as strings.
+public final class ClickBucketEntryConverters {
+
+    static final String TIMESTAMP = "ts";
+    static final String USER_AGENT = "ua";
+    static final String IP_ADDRESS = "ip";
+
+    private ClickBucketEntryConverters() {
+    }
+
+    @WritingConverter
+    public enum Writer implements Converter<ClickBucketEntry, Document> {
+        INSTANCE;
+
+        @Override
+        public Document convert(final ClickBucketEntry entry) {
+            var document = new Document(TIMESTAMP, new Date(entry.timestamp()));
+            if (entry.userAgentId() != UserAgentDictionary.NONE) {
+                document.append(USER_AGENT, entry.userAgentId());
+            } else if (entry.hasInlineUserAgent()) {
+                document.append(USER_AGENT, entry.inlineUserAgent());
+            }
+            var ipAddress = entry.ipAddress();
+            if (ipAddress != null) {
+                document.append(IP_ADDRESS, new Binary(ipAddress));
+            }
+            return document;
+        }
+    }
+
+    @ReadingConverter
+    public enum Reader implements Converter<Document, ClickBucketEntry> {
+        INSTANCE;
+
+        @Override
+        public ClickBucketEntry convert(final Document document) {
+            long timestamp = 0L;
+            var ts = document.get(TIMESTAMP);
+            if (ts instanceof Date date) {
+                timestamp = date.getTime();
+            } else if (ts instanceof Number millis) {
+                timestamp = millis.longValue();
+            }
+
+            long userAgentId = UserAgentDictionary.NONE;
+            String inlineUserAgent = null;
+            var userAgent = document.get(USER_AGENT);
+            if (userAgent instanceof Number id) {
+                userAgentId = id.longValue();
+            } else if (userAgent instanceof String header) {
+                inlineUserAgent = header;
+            }
+
+            byte[] ipAddress = null;
+            var ip = document.get(IP_ADDRESS);
+            if (ip instanceof Binary binary) {
+                ipAddress = binary.getData();
+            } else if (ip instanceof byte[] bytes) {
+                ipAddress = bytes;
+            } else if (ip instanceof String text) {
+                ipAddress = IpAddressCodec.pack(text);
+            }
+
+            return new ClickBucketEntry(timestamp, userAgentId, inlineUserAgent, ipAddress);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.carloscavalcanti.urlshortner.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoConfig {
+
+    // The pool is the bulkhead in front of Mongo: with virtual threads, request concurrency is effectively
+    // unbounded, so cap connections and fail fast instead of queueing millions of waiters
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${app.mongo.pool.max-size:100}") final int maxSize,
+            @Value("${app.mongo.pool.min-size:10}") final int minSize,
+            @Value("${app.mongo.pool.max-connecting:4}") final int maxConnecting,
+            @Value("${app.mongo.pool.max-wait-time:2s}") final Duration maxWaitTime) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .minSize(minSize)
+                .maxConnecting(maxConnecting)
+                .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                ClickBucketEntryConverters.Writer.INSTANCE,
+                ClickBucketEntryConverters.Reader.INSTANCE));
+    }
+}
@@ -1,13 +1,22 @@
 package com.carloscavalcanti.urlshortner.config;
 
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -33,6 +42,38 @@ public class RedisConfig {
         return template;
     }
 
+    @Bean
+    public RedisTemplate<String, ResolvedUrl> resolvedUrlRedisTemplate(final RedisConnectionFactory connectionFactory,
+                                                                       final ObjectMapper objectMapper) {
+        RedisTemplate<String, ResolvedUrl> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        // Typed serializer keeps cached entries free of class metadata
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new Jackson2JsonRedisSerializer<>(objectMapper, ResolvedUrl.class));
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(final RedisConnectionFactory connectionFactory,
+                                                                       final UrlResolutionCache urlResolutionCache,
+                                                                       final ShortCodeFilter shortCodeFilter,
+                                                                       @Value("${spring.threads.virtual.enabled:false}")
+                                                                       final boolean virtualThreads) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (virtualThreads) {
+            var executor = new SimpleAsyncTaskExecutor("redis-listener-");
+            executor.setVirtualThreads(true);
+            container.setTaskExecutor(executor);
+        }
+        container.addMessageListener(urlResolutionCache, new ChannelTopic(UrlResolutionCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(shortCodeFilter, new ChannelTopic(ShortCodeFilter.ADDITIONS_CHANNEL));
+        return container;
+    }
+
     @Bean
     public RedisCacheManager cacheManager(final RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
@@ -0,0 +1,123 @@
+package com.carloscavalcanti.urlshortner.controller;
+
+import com.carloscavalcanti.urlshortner.service.click.IpAddressCodec;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Client IP shared by the servlet and reactive redirect paths and the rate limiter. Proxy headers are only honoured
+// when the peer is one of our trusted proxies, anything else could be set by the client itself.
+@Component
+public class ClientIpAddressResolver {
+
+    private final List<Network> trustedProxies = new ArrayList<>();
+
+    public ClientIpAddressResolver(@Value("${app.client-ip.trusted-proxies:}") final List<String> trustedProxies) {
+        for (String proxy : trustedProxies) {
+            if (!proxy.isBlank()) {
+                this.trustedProxies.add(Network.parse(proxy.trim()));
+            }
+        }
+    }
+
+    public String resolve(final HttpServletRequest request) {
+        return resolve(request.getHeader("X-Forwarded-For"), request.getHeader("X-Real-IP"), request.getRemoteAddr());
+    }
+
+    public String resolve(final ServerHttpRequest request) {
+        var headers = request.getHeaders();
+        var remoteAddress = request.getRemoteAddress();
+        var remoteAddr = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : null;
+        return resolve(headers.getFirst("X-Forwarded-For"), headers.getFirst("X-Real-IP"), remoteAddr);
+    }
+
+    public String resolve(final String xForwardedFor, final String xRealIp, final String remoteAddr) {
+        if (!isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+            // Each proxy appends its peer, so walk from the right past our own proxies; hops further left are
+            // whatever the client sent. Scans backwards without splitting the header into an array.
+            String hop = null;
+            int end = xForwardedFor.length();
+            while (end > 0) {
+                int comma = xForwardedFor.lastIndexOf(',', end - 1);
+                var candidate = xForwardedFor.substring(comma + 1, end).trim();
+                if (!candidate.isEmpty()) {
+                    if (!isTrusted(candidate)) {
+                        return candidate;
+                    }
+                    hop = candidate;
+                }
+                end = Math.max(comma, 0);
+            }
+            if (hop != null) {
+                return hop;
+            }
+        }
+
+        if (xRealIp != null && !xRealIp.isBlank()) {
+            return xRealIp.trim();
+        }
+
+        return remoteAddr;
+    }
+
+    private boolean isTrusted(final String ipAddress) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        var address = IpAddressCodec.pack(ipAddress);
+        if (address == null) {
+            return false;
+        }
+        for (Network network : trustedProxies) {
+            if (network.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A single address or a CIDR block such as 10.0.0.0/8 or fd00::/8
+    private record Network(byte[] address, int prefixLength) {
+
+        static Network parse(final String value) {
+            int slash = value.indexOf('/');
+            var address = IpAddressCodec.pack(slash < 0 ? value : value.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Trusted proxy " + value + " is not an IP address or CIDR block");
+            }
+            int prefixLength = slash < 0 ? address.length * 8 : Integer.parseInt(value.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > address.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length in trusted proxy " + value);
+            }
+            return new Network(address, prefixLength);
+        }
+
+        boolean contains(final byte[] candidate) {
+            if (candidate.length != address.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (candidate[i] != address[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (candidate[fullBytes] & mask) == (address[fullBytes] & mask);
+        }
+    }
+}
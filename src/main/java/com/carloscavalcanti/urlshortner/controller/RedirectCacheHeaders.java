@@ -0,0 +1,78 @@
+package com.carloscavalcanti.urlshortner.controller;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+// Redirect response headers shared by the servlet and reactive redirect paths. Permanent redirects get a
+// shared-cache lifetime capped by the mapping expiry, temporary ones are never stored so every click reaches us.
+@Component
+public class RedirectCacheHeaders {
+
+    private final Duration permanentMaxAge;
+
+    public RedirectCacheHeaders(@Value("${app.redirect.permanent-max-age:1d}") final Duration permanentMaxAge) {
+        this.permanentMaxAge = permanentMaxAge;
+    }
+
+    public HttpHeaders headersFor(final ResolvedUrl resolved, final LocalDateTime now) {
+        var headers = new HttpHeaders();
+        headers.setLocation(URI.create(resolved.originalUrl()));
+        headers.setCacheControl(cacheControl(resolved, now));
+        if (resolved.redirectType().isPermanent()) {
+            headers.setETag(etag(resolved));
+        }
+        return headers;
+    }
+
+    // True when the client already holds this exact redirect and can be answered with 304
+    public boolean isNotModified(final ResolvedUrl resolved, final String ifNoneMatch) {
+        if (ifNoneMatch == null || !resolved.redirectType().isPermanent()) {
+            return false;
+        }
+        var etag = etag(resolved);
+        for (String candidate : ifNoneMatch.split(",")) {
+            var trimmed = candidate.trim();
+            if ("*".equals(trimmed) || etag.equals(trimmed) || ("W/" + etag).equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CacheControl cacheControl(final ResolvedUrl resolved, final LocalDateTime now) {
+        if (!resolved.redirectType().isPermanent()) {
+            return CacheControl.noStore();
+        }
+
+        // Never let a cache serve the redirect beyond the mapping's expiry
+        var maxAge = permanentMaxAge;
+        if (resolved.expiresAt() != null) {
+            var untilExpiry = Duration.between(now, resolved.expiresAt());
+            if (untilExpiry.compareTo(maxAge) < 0) {
+                maxAge = untilExpiry.isNegative() ? Duration.ZERO : untilExpiry;
+            }
+        }
+        return maxAge.isZero() ? CacheControl.noStore() : CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    private static String etag(final ResolvedUrl resolved) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(
+                    (resolved.redirectType() + " " + resolved.originalUrl()).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 8) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.carloscavalcanti.urlshortner.controller;
 
 import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTO;
+import com.carloscavalcanti.urlshortner.dto.BatchShortenResultDTO;
 import com.carloscavalcanti.urlshortner.dto.ShortenUrlRequestDTO;
 import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTO;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import com.carloscavalcanti.urlshortner.reactive.ReactiveRedirectConfig;
+import com.carloscavalcanti.urlshortner.service.BatchShortenService;
 import com.carloscavalcanti.urlshortner.service.UrlShortenerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,19 +22,37 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.net.URI;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
+@Profile("!" + ReactiveRedirectConfig.PROFILE)
 @RequiredArgsConstructor
 @Slf4j
 @Tag(name = "URL Shortener", description = "API for URL shortening and analytics")
 public class UrlShortenerController {
 
     private final UrlShortenerService urlShortenerService;
+    private final BatchShortenService batchShortenService;
+    private final ObjectMapper objectMapper;
+    private final RedirectCacheHeaders redirectCacheHeaders;
+    private final ClientIpAddressResolver clientIpAddressResolver;
+
+    @Value("${app.batch.chunk-size:1000}")
+    private int batchChunkSize;
 
     @PostMapping("/api/shorten")
     @Operation(summary = "Shorten a URL", description = "Create a short URL from a long URL")
@@ -52,10 +76,33 @@ public class UrlShortenerController {
         }
     }
 
+    @PostMapping(value = "/api/shorten/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Shorten URLs in bulk",
+            description = "Accepts a JSON array or NDJSON stream of {\"longUrl\": ...} objects and streams back "
+                    + "one NDJSON result per item, in input order, with per-item errors")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Per-item results streamed as NDJSON",
+                content = @Content(schema = @Schema(implementation = BatchShortenResultDTO.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> shortenUrlBatch(final HttpServletRequest request) throws IOException {
+        var input = request.getInputStream();
+
+        StreamingResponseBody body = output -> streamBatch(input, output);
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/{shortCode}")
-    @Operation(summary = "Redirect to original URL", description = "Redirect from short code to original URL")
+    @Operation(summary = "Redirect to original URL",
+            description = "Redirect from short code to original URL with the mapping's redirect type")
     @ApiResponses(value = {
+        @ApiResponse(responseCode = "301", description = "Permanent, cacheable redirect to original URL"),
         @ApiResponse(responseCode = "302", description = "Redirect to original URL"),
+        @ApiResponse(responseCode = "304", description = "Cached permanent redirect is still valid"),
+        @ApiResponse(responseCode = "307", description = "Temporary redirect to original URL"),
+        @ApiResponse(responseCode = "308", description = "Permanent, cacheable redirect to original URL"),
         @ApiResponse(responseCode = "404", description = "Short code not found")
     })
     public ResponseEntity<Void> redirectToOriginalUrl(
@@ -67,32 +114,51 @@ public class UrlShortenerController {
 
         log.info("Redirect request for short code: {} from IP: {}", shortCode, ipAddress);
 
-        var originalUrl = urlShortenerService.redirectAndTrack(shortCode, userAgent, ipAddress);
+        var resolved = urlShortenerService.redirectAndTrack(shortCode, userAgent, ipAddress);
 
-        if (originalUrl == null) {
-            log.warn("Short code not found: {}", shortCode);
+        if (resolved == null) {
+            log.debug("Short code not found: {}", shortCode);
             return ResponseEntity.notFound().build();
         }
 
-        var headers = new HttpHeaders();
-        headers.setLocation(URI.create(originalUrl));
+        var headers = redirectCacheHeaders.headersFor(resolved, LocalDateTime.now());
+        if (redirectCacheHeaders.isNotModified(resolved, request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
 
-        return ResponseEntity.status(HttpStatus.FOUND).headers(headers).build();
+        return ResponseEntity.status(resolved.redirectType().getStatus()).headers(headers).build();
     }
 
     @GetMapping("/api/analytics/{shortCode}")
-    @Operation(summary = "Get URL analytics", description = "Retrieve analytics data for a short URL")
+    @Operation(summary = "Get URL analytics",
+            description = "Retrieve click time series, unique visitors, top user agents and the most recent clicks "
+                    + "for a short URL")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Analytics retrieved successfully",
                 content = @Content(schema = @Schema(implementation = AnalyticsResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid time range or granularity"),
         @ApiResponse(responseCode = "404", description = "Short code not found")
     })
     public ResponseEntity<AnalyticsResponseDTO> getAnalytics(
-            @Parameter(description = "Short code identifier") @PathVariable final String shortCode) {
+            @Parameter(description = "Short code identifier") @PathVariable final String shortCode,
+            @Parameter(description = "Range start (inclusive), defaults to one default window before 'to'")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            final LocalDateTime from,
+            @Parameter(description = "Range end (exclusive), defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            final LocalDateTime to,
+            @Parameter(description = "Series granularity: MINUTE, HOUR or DAY")
+            @RequestParam(defaultValue = "HOUR") final RollupGranularity granularity) {
 
         log.info("Analytics request for short code: {}", shortCode);
 
-        var analyticsDTO = urlShortenerService.getAnalytics(shortCode);
+        AnalyticsResponseDTO analyticsDTO;
+        try {
+            analyticsDTO = urlShortenerService.getAnalytics(shortCode, from, to, granularity);
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid analytics query for {}: {}", shortCode, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
 
         if (analyticsDTO == null) {
             log.warn("Analytics not found for short code: {}", shortCode);
@@ -102,17 +168,75 @@ public class UrlShortenerController {
         return ResponseEntity.ok(analyticsDTO);
     }
 
-    private String getClientIpAddress(final HttpServletRequest request) {
-        var xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+    // Reads the input chunk by chunk so a large import never has to be held in memory at once
+    private void streamBatch(final InputStream input, final OutputStream output) throws IOException {
+        var writer = objectMapper.writer();
+        int processed = 0;
+
+        try (var items = objectMapper.readerFor(ShortenUrlRequestDTO.class).<ShortenUrlRequestDTO>readValues(input)) {
+            List<ShortenUrlRequestDTO> chunk = new ArrayList<>(batchChunkSize);
+            boolean more = true;
+            while (more) {
+                try {
+                    more = items.hasNextValue();
+                    if (more) {
+                        chunk.add(items.nextValue());
+                    }
+                } catch (IOException e) {
+                    log.warn("Malformed batch shorten input after {} item(s)", processed + chunk.size(), e);
+                    writeResults(output, writer, shortenChunk(chunk, processed));
+                    writeLine(output, writer, BatchShortenResultDTO.builder()
+                            .index(processed + chunk.size())
+                            .status(BatchShortenResultDTO.Status.FAILED)
+                            .error("Malformed input, remaining items were not processed")
+                            .build());
+                    return;
+                }
+
+                if (chunk.size() == batchChunkSize || (!more && !chunk.isEmpty())) {
+                    writeResults(output, writer, shortenChunk(chunk, processed));
+                    processed += chunk.size();
+                    chunk.clear();
+                }
+            }
         }
 
-        var xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
+        log.info("Batch shorten processed {} item(s)", processed);
+    }
+
+    private List<BatchShortenResultDTO> shortenChunk(final List<ShortenUrlRequestDTO> chunk, final int firstIndex) {
+        try {
+            return batchShortenService.shortenBatch(chunk, firstIndex);
+        } catch (Exception e) {
+            log.error("Error shortening batch chunk starting at item {}", firstIndex, e);
+            List<BatchShortenResultDTO> failed = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                failed.add(BatchShortenResultDTO.builder()
+                        .index(firstIndex + i)
+                        .longUrl(chunk.get(i) == null ? null : chunk.get(i).getLongUrl())
+                        .status(BatchShortenResultDTO.Status.FAILED)
+                        .error("Internal server error")
+                        .build());
+            }
+            return failed;
         }
+    }
 
-        return request.getRemoteAddr();
+    private void writeResults(final OutputStream output, final ObjectWriter writer,
+                              final List<BatchShortenResultDTO> results) throws IOException {
+        for (BatchShortenResultDTO result : results) {
+            writeLine(output, writer, result);
+        }
+        output.flush();
+    }
+
+    private void writeLine(final OutputStream output, final ObjectWriter writer,
+                           final BatchShortenResultDTO result) throws IOException {
+        output.write(writer.writeValueAsBytes(result));
+        output.write('\n');
+    }
+
+    private String getClientIpAddress(final HttpServletRequest request) {
+        return clientIpAddressResolver.resolve(request);
     }
 }
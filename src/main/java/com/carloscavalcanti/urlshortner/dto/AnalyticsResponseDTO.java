@@ -18,25 +18,31 @@ public class AnalyticsResponseDTO {
     private String shortCode;
     private String originalUrl;
     private Long totalClicks;
+    private Long uniqueVisitors;
     private LocalDateTime createdAt;
     @Singular
     private List<ClickInfo> recentClicks;
     private boolean active;
+    private ClickSeriesDTO series;
 
     // Constructor with defensive copying
     public AnalyticsResponseDTO(final String shortCode,
                                 final String originalUrl,
                                 final Long totalClicks,
+                                final Long uniqueVisitors,
                                 final LocalDateTime createdAt,
                                 final List<ClickInfo> recentClicks,
-                                final boolean active) {
+                                final boolean active,
+                                final ClickSeriesDTO series) {
 
         this.shortCode = shortCode;
         this.originalUrl = originalUrl;
         this.totalClicks = totalClicks;
+        this.uniqueVisitors = uniqueVisitors;
         this.createdAt = createdAt;
         this.recentClicks = recentClicks != null ? new ArrayList<>(recentClicks) : new ArrayList<>();
         this.active = active;
+        this.series = series;
     }
 
     // Defensive getter
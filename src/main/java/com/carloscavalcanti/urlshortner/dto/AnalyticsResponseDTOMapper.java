@@ -1,19 +1,25 @@
 package com.carloscavalcanti.urlshortner.dto;
 
-import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.UrlMappingSummary;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.ReportingPolicy;
 
+import java.util.List;
+
 @Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface AnalyticsResponseDTOMapper {
 
-    @Mapping(target = "totalClicks", expression = "java(urlMapping.getClickCount())")
-    @Mapping(target = "recentClicks", expression = "java(urlMapping.getClicks())")
-    @Mapping(target = "shortCode", expression = "java(urlMapping.getShortCode())")
-    @Mapping(target = "originalUrl", expression = "java(urlMapping.getOriginalUrl())")
-    @Mapping(target = "createdAt", expression = "java(urlMapping.getCreatedAt())")
-    @Mapping(target = "active", expression = "java(urlMapping.isActive())")
-    AnalyticsResponseDTO toDTO(UrlMapping urlMapping);
+    @Mapping(target = "totalClicks", expression = "java(totalClicks)")
+    @Mapping(target = "uniqueVisitors", expression = "java(uniqueVisitors)")
+    @Mapping(target = "recentClicks", expression = "java(recentClicks)")
+    @Mapping(target = "shortCode", expression = "java(summary.shortCode())")
+    @Mapping(target = "originalUrl", expression = "java(summary.originalUrl())")
+    @Mapping(target = "createdAt", expression = "java(summary.createdAt())")
+    @Mapping(target = "active", expression = "java(summary.active())")
+    @Mapping(target = "series", expression = "java(series)")
+    AnalyticsResponseDTO toDTO(UrlMappingSummary summary, Long totalClicks, Long uniqueVisitors,
+                               List<ClickInfo> recentClicks, ClickSeriesDTO series);
 }
@@ -0,0 +1,28 @@
+package com.carloscavalcanti.urlshortner.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchShortenResultDTO {
+
+    private int index;
+    private String longUrl;
+    private String shortUrl;
+    private String shortCode;
+    private Status status;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        EXISTING,
+        FAILED
+    }
+}
@@ -0,0 +1,20 @@
+package com.carloscavalcanti.urlshortner.dto;
+
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ClickSeriesDTO(RollupGranularity granularity,
+                             LocalDateTime from,
+                             LocalDateTime to,
+                             long clicks,
+                             Long uniqueVisitors,
+                             List<ClickSeriesPointDTO> points,
+                             List<UserAgentCountDTO> topUserAgents) {
+
+    public ClickSeriesDTO {
+        points = points != null ? List.copyOf(points) : List.of();
+        topUserAgents = topUserAgents != null ? List.copyOf(topUserAgents) : List.of();
+    }
+}
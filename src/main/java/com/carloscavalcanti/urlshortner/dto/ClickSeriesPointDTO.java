@@ -0,0 +1,7 @@
+package com.carloscavalcanti.urlshortner.dto;
+
+import java.time.LocalDateTime;
+
+// uniqueVisitors is approximate and null for MINUTE granularity
+public record ClickSeriesPointDTO(LocalDateTime bucketStart, long clicks, Long uniqueVisitors) {
+}
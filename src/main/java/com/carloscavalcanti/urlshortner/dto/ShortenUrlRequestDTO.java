@@ -1,13 +1,24 @@
 package com.carloscavalcanti.urlshortner.dto;
 
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class ShortenUrlRequestDTO {
 
     @NotBlank(message = "URL cannot be blank")
     @Pattern(regexp = "^(https?://).*", message = "URL must start with http:// or https://")
     private String longUrl;
+
+    // Optional, defaults to FOUND (302); permanent types let browsers and CDNs cache the redirect
+    private RedirectType redirectType;
+
+    // Optional, the link stops redirecting at this time and is deleted with its click data by the expiry sweeper
+    @Future(message = "Expiry must be in the future")
+    private LocalDateTime expiresAt;
 }
@@ -1,10 +1,13 @@
 package com.carloscavalcanti.urlshortner.dto;
 
+import com.carloscavalcanti.urlshortner.model.RedirectType;
 import lombok.Builder;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @Builder
 @AllArgsConstructor
@@ -14,4 +17,6 @@ public class ShortenUrlResponseDTO {
     private String shortUrl;
     private String originalUrl;
     private String shortCode;
+    private RedirectType redirectType;
+    private LocalDateTime expiresAt;
 }
@@ -1,5 +1,6 @@
 package com.carloscavalcanti.urlshortner.dto;
 
+import com.carloscavalcanti.urlshortner.model.RedirectType;
 import com.carloscavalcanti.urlshortner.model.UrlMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.MappingConstants;
@@ -16,6 +17,8 @@ public interface ShortenUrlResponseDTOMapper {
                 .shortUrl(baseUrl + "/" + urlMapping.getShortCode())
                 .originalUrl(urlMapping.getOriginalUrl())
                 .shortCode(urlMapping.getShortCode())
+                .redirectType(RedirectType.orDefault(urlMapping.getRedirectType()))
+                .expiresAt(urlMapping.getExpiresAt())
                 .build();
     }
 }
@@ -0,0 +1,4 @@
+package com.carloscavalcanti.urlshortner.dto;
+
+public record UserAgentCountDTO(String userAgent, long clicks) {
+}
@@ -0,0 +1,66 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Click history per short code per hour, so it never grows the mapping document. A busy hour rolls over into further
+// documents once one holds ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT clicks, keeping each far below the 16 MB limit.
+@Getter
+@Setter
+@Document(collection = "click_buckets")
+@CompoundIndex(name = "short_code_bucket_id_idx", def = "{'shortCode': 1, 'bucketStart': -1, '_id': -1}")
+@Builder
+@NoArgsConstructor
+public class ClickBucket {
+
+    @Id
+    private String id;
+
+    private String shortCode;
+
+    private LocalDateTime bucketStart;
+
+    @Builder.Default
+    private Long count = 0L;
+
+    @Builder.Default
+    private List<ClickBucketEntry> clicks = new ArrayList<>();
+
+    // Custom all-args constructor with defensive copying
+    public ClickBucket(String id, String shortCode, LocalDateTime bucketStart,
+                       Long count, List<ClickBucketEntry> clicks) {
+        this.id = id;
+        this.shortCode = shortCode;
+        this.bucketStart = bucketStart;
+        this.count = count;
+        this.clicks = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
+    }
+
+    // Custom builder class to handle defensive copying
+    public static class ClickBucketBuilder {
+        public ClickBucketBuilder clicks(List<ClickBucketEntry> clicks) {
+            this.clicks$value = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
+            this.clicks$set = true;
+            return this;
+        }
+    }
+
+    // Defensive getter - overrides Lombok's generated getter
+    public List<ClickBucketEntry> getClicks() {
+        return clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
+    }
+
+    // Defensive setter - overrides Lombok's generated setter
+    public void setClicks(final List<ClickBucketEntry> clicks) {
+        this.clicks = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
+    }
+}
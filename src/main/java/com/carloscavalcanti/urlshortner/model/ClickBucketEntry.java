@@ -0,0 +1,37 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Compact per-click entry stored inside a ClickBucket: epoch millis, the interned user agent id and the packed
+// IPv4/IPv6 bytes. Encoded by ClickBucketEntryConverters instead of reflective mapping.
+public record ClickBucketEntry(long timestamp,
+                               long userAgentId,
+                               String inlineUserAgent,
+                               byte[] ipAddress) {
+
+    // Defensive copy of the address bytes
+    public ClickBucketEntry {
+        ipAddress = ipAddress != null ? ipAddress.clone() : null;
+    }
+
+    public ClickBucketEntry(final long timestamp, final long userAgentId, final byte[] ipAddress) {
+        this(timestamp, userAgentId, null, ipAddress);
+    }
+
+    // Defensive getter - overrides the record accessor
+    @Override
+    public byte[] ipAddress() {
+        return ipAddress != null ? ipAddress.clone() : null;
+    }
+
+    // Entries written before user agents were interned still carry the raw header
+    public boolean hasInlineUserAgent() {
+        return inlineUserAgent != null;
+    }
+
+    public LocalDateTime localTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,23 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Immutable click captured on the redirect path and handed to the async click pipeline. The time is kept as
+// epoch millis so the request thread reads the clock without allocating date-time objects.
+public record ClickEvent(String shortCode,
+                         long epochMillis,
+                         String userAgent,
+                         String ipAddress) {
+
+    public ClickEvent(final String shortCode, final LocalDateTime timestamp,
+                      final String userAgent, final String ipAddress) {
+        this(shortCode, timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), userAgent, ipAddress);
+    }
+
+    // Local time in the system zone, the same clock LocalDateTime.now() reads
+    public LocalDateTime timestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,91 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Pre-aggregated clicks per short code per minute, hour or day, maintained incrementally as clicks are ingested
+@Getter
+@Setter
+@Document(collection = "click_rollups")
+@CompoundIndex(name = "short_code_granularity_bucket_idx",
+        def = "{'shortCode': 1, 'granularity': 1, 'bucketStart': 1}", unique = true)
+@CompoundIndex(name = "granularity_bucket_idx", def = "{'granularity': 1, 'bucketStart': -1}")
+@Builder
+@NoArgsConstructor
+public class ClickRollup {
+
+    private static final String UNKNOWN_USER_AGENT = "unknown";
+
+    @Id
+    private String id;
+
+    private String shortCode;
+
+    private RollupGranularity granularity;
+
+    private LocalDateTime bucketStart;
+
+    @Builder.Default
+    private Long count = 0L;
+
+    // Clicks per user agent family; rollups written before families were introduced hold escaped full headers
+    @Builder.Default
+    private Map<String, Long> userAgents = new HashMap<>();
+
+    // Fine-grained rollups expire through a TTL index, daily rollups are kept
+    @Indexed(name = "expire_at_ttl_idx", expireAfter = "0s")
+    private LocalDateTime expireAt;
+
+    // Custom all-args constructor with defensive copying
+    public ClickRollup(String id, String shortCode, RollupGranularity granularity, LocalDateTime bucketStart,
+                       Long count, Map<String, Long> userAgents, LocalDateTime expireAt) {
+        this.id = id;
+        this.shortCode = shortCode;
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.count = count;
+        this.userAgents = userAgents != null ? new HashMap<>(userAgents) : new HashMap<>();
+        this.expireAt = expireAt;
+    }
+
+    // Custom builder class to handle defensive copying
+    public static class ClickRollupBuilder {
+        public ClickRollupBuilder userAgents(Map<String, Long> userAgents) {
+            this.userAgents$value = userAgents != null ? new HashMap<>(userAgents) : new HashMap<>();
+            this.userAgents$set = true;
+            return this;
+        }
+    }
+
+    // Defensive getter and setter - override Lombok's generated ones
+    public Map<String, Long> getUserAgents() {
+        return userAgents != null ? new HashMap<>(userAgents) : new HashMap<>();
+    }
+
+    public void setUserAgents(final Map<String, Long> userAgents) {
+        this.userAgents = userAgents != null ? new HashMap<>(userAgents) : new HashMap<>();
+    }
+
+    public static String encodeUserAgentKey(final String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN_USER_AGENT;
+        }
+        var key = userAgent.replace('.', '\uFF0E');
+        return key.startsWith("$") ? '\uFF04' + key.substring(1) : key;
+    }
+
+    public static String decodeUserAgentKey(final String key) {
+        var userAgent = key.replace('\uFF0E', '.');
+        return userAgent.startsWith("\uFF04") ? '$' + userAgent.substring(1) : userAgent;
+    }
+}
@@ -0,0 +1,5 @@
+package com.carloscavalcanti.urlshortner.model;
+
+// Dedup projection of a UrlMapping, all a shorten request needs to reuse an existing code
+public record DedupMatch(String shortCode, String originalUrl, String originalUrlHash) {
+}
@@ -0,0 +1,34 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import org.springframework.http.HttpStatus;
+
+// HTTP status used to redirect a short code; permanent redirects are cacheable by browsers and CDNs
+public enum RedirectType {
+    MOVED_PERMANENTLY(HttpStatus.MOVED_PERMANENTLY, true),
+    FOUND(HttpStatus.FOUND, false),
+    TEMPORARY_REDIRECT(HttpStatus.TEMPORARY_REDIRECT, false),
+    PERMANENT_REDIRECT(HttpStatus.PERMANENT_REDIRECT, true);
+
+    public static final RedirectType DEFAULT = FOUND;
+
+    private final HttpStatus status;
+    private final boolean permanent;
+
+    RedirectType(final HttpStatus status, final boolean permanent) {
+        this.status = status;
+        this.permanent = permanent;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    // Mappings stored before redirect types existed have none and keep redirecting with 302
+    public static RedirectType orDefault(final RedirectType redirectType) {
+        return redirectType != null ? redirectType : DEFAULT;
+    }
+}
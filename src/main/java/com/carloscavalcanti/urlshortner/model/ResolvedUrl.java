@@ -0,0 +1,36 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import org.springframework.data.annotation.PersistenceCreator;
+
+import java.time.LocalDateTime;
+
+// Minimal redirect view of a UrlMapping, the only thing the resolution cache stores. Also read directly as a
+// repository projection, so a redirect miss fetches these four fields instead of the whole document.
+public record ResolvedUrl(String originalUrl,
+                          boolean active,
+                          LocalDateTime expiresAt,
+                          RedirectType redirectType) {
+
+    @PersistenceCreator
+    public ResolvedUrl {
+        redirectType = RedirectType.orDefault(redirectType);
+    }
+
+    public ResolvedUrl(final String originalUrl, final boolean active, final LocalDateTime expiresAt) {
+        this(originalUrl, active, expiresAt, RedirectType.DEFAULT);
+    }
+
+    public static ResolvedUrl from(final UrlMapping mapping) {
+        return new ResolvedUrl(mapping.getOriginalUrl(), mapping.isActive(), mapping.getExpiresAt(),
+                mapping.getRedirectType());
+    }
+
+    // Only reads the clock for links that can expire
+    public boolean isAvailable() {
+        return active && (expiresAt == null || expiresAt.isAfter(LocalDateTime.now()));
+    }
+
+    public boolean isAvailable(final LocalDateTime now) {
+        return active && (expiresAt == null || expiresAt.isAfter(now));
+    }
+}
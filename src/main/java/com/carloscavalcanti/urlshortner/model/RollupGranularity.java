@@ -0,0 +1,35 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES, Duration.ofHours(1)),
+    HOUR(ChronoUnit.HOURS, Duration.ofDays(1)),
+    DAY(ChronoUnit.DAYS, Duration.ofDays(30));
+
+    private final ChronoUnit unit;
+    private final Duration defaultWindow;
+
+    RollupGranularity(final ChronoUnit unit, final Duration defaultWindow) {
+        this.unit = unit;
+        this.defaultWindow = defaultWindow;
+    }
+
+    public LocalDateTime truncate(final LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(final LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    public long bucketsBetween(final LocalDateTime from, final LocalDateTime to) {
+        return unit.between(truncate(from), truncate(to)) + 1;
+    }
+
+    public Duration getDefaultWindow() {
+        return defaultWindow;
+    }
+}
@@ -6,16 +6,18 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
+// Click history lives in click_buckets, so this document stays small and fixed-size
 @Getter
 @Setter
 @Document(collection = "url_mappings")
 @Builder
 @NoArgsConstructor
+@AllArgsConstructor
 public class UrlMapping {
     
+    // The short code for mappings created since deletes are propagated by the change feed, so a delete event's
+    // document key identifies the mapping without a pre-image; older mappings keep their ObjectId
     @Id
     private String id;
     
@@ -23,56 +25,30 @@ public class UrlMapping {
     private String shortCode;
     
     private String originalUrl;
+
+    // SHA-256 of the normalized original URL (suffixed with the redirect type when it is not the default and
+    // with the expiry when set), the indexed key for shorten deduplication
+    @Indexed
+    private String originalUrlHash;
     
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Bumped by any change that affects redirects, never by click counting; the change feed polls it when change
+    // streams are unavailable, so tools editing mappings directly must set it too
+    @Indexed
+    private LocalDateTime updatedAt;
+
+    // Unset for permanent links; sparse so the expiry sweeper's range scan only covers expiring ones
+    @Indexed(sparse = true)
     private LocalDateTime expiresAt;
     
     @Builder.Default
     private Long clickCount = 0L;
     
-    @Builder.Default
-    private List<ClickInfo> clicks = new ArrayList<>();
-    
     @Builder.Default
     private boolean active = true;
 
-    // Custom all-args constructor with defensive copying
-    public UrlMapping(String id, String shortCode, String originalUrl,
-                     LocalDateTime createdAt, LocalDateTime expiresAt,
-                     Long clickCount, List<ClickInfo> clicks, boolean active) {
-        this.id = id;
-        this.shortCode = shortCode;
-        this.originalUrl = originalUrl;
-        this.createdAt = createdAt;
-        this.expiresAt = expiresAt;
-        this.clickCount = clickCount;
-        this.clicks = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
-        this.active = active;
-    }
-
-    // Custom builder class to handle defensive copying
-    public static class UrlMappingBuilder {
-        public UrlMappingBuilder clicks(List<ClickInfo> clicks) {
-            this.clicks$value = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
-            this.clicks$set = true;
-            return this;
-        }
-    }
-
-    // Defensive getter - overrides Lombok's generated getter
-    public List<ClickInfo> getClicks() {
-        return clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
-    }
-
-    // Defensive setter - overrides Lombok's generated setter
-    public void setClicks(final List<ClickInfo> clicks) {
-        this.clicks = clicks != null ? new ArrayList<>(clicks) : new ArrayList<>();
-    }
-
-    public void incrementClickCount() {
-        this.clickCount++;
-        this.clicks.add(new ClickInfo(LocalDateTime.now()));
-    }
+    @Builder.Default
+    private RedirectType redirectType = RedirectType.DEFAULT;
 }
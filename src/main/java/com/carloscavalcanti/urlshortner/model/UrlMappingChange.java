@@ -0,0 +1,17 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import java.time.Instant;
+
+// A change to url_mappings as seen by the change feed. Deactivations arrive as UPDATED with an inactive
+// resolvedUrl; resolvedUrl is null for deletes.
+public record UrlMappingChange(Type type,
+                               String shortCode,
+                               ResolvedUrl resolvedUrl,
+                               Instant changedAt) {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,15 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import java.time.LocalDateTime;
+
+// Analytics projection of a UrlMapping, clickCount is the persisted total without pending Redis increments
+public record UrlMappingSummary(String shortCode,
+                                String originalUrl,
+                                Long clickCount,
+                                LocalDateTime createdAt,
+                                boolean active) {
+
+    public long persistedClicks() {
+        return clickCount != null ? clickCount : 0L;
+    }
+}
@@ -0,0 +1,22 @@
+package com.carloscavalcanti.urlshortner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Dictionary entry behind the user agent ids stored in click buckets
+@Getter
+@Setter
+@Document(collection = "user_agents")
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAgentEntry {
+
+    @Id
+    private Long id;
+
+    private String userAgent;
+}
@@ -0,0 +1,141 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cluster-wide sliding window counters in Redis. Requests are only counted in memory on the request path; every
+// sync interval the local counts are added to the shared window and clients over the limit are blocked locally
+// until the window has moved on, so no request ever waits on Redis.
+@Component
+@Slf4j
+public class ClusterRateLimiter {
+
+    static final String KEY_PREFIX = "rate-limit:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final List<Window> windows = new CopyOnWriteArrayList<>();
+
+    public ClusterRateLimiter(final StringRedisTemplate stringRedisTemplate,
+                              @Value("${app.rate-limit.cluster.enabled:true}") final boolean enabled,
+                              @Value("${app.rate-limit.cluster.window:1m}") final Duration window) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.windowMillis = window.toMillis();
+    }
+
+    // Returns null when cluster limiting is disabled or the limit is not positive
+    public Window register(final String name, final long limit) {
+        if (!enabled || limit <= 0) {
+            return null;
+        }
+        var window = new Window(name, limit);
+        windows.add(window);
+        return window;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.cluster.sync-interval:1s}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        for (Window window : windows) {
+            window.unblockExpired(now);
+            try {
+                window.sync(now);
+            } catch (RuntimeException e) {
+                // Fail open, the local token buckets still apply while Redis is unavailable
+                log.debug("Unable to sync rate limit window {} with Redis", window.name, e);
+            }
+        }
+    }
+
+    // One limited dimension, e.g. shorten requests per client IP
+    public final class Window {
+
+        private final String name;
+        private final long limit;
+        private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+        private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+
+        private Window(final String name, final long limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+
+        // Returns 0 when the client is not blocked, otherwise the milliseconds until it is unblocked
+        public long retryAfterMillis(final String id, final long nowMillis) {
+            var until = blockedUntil.get(id);
+            return until == null || until <= nowMillis ? 0 : until - nowMillis;
+        }
+
+        public void record(final String id) {
+            pending.computeIfAbsent(id, key -> new LongAdder()).increment();
+        }
+
+        private void unblockExpired(final long nowMillis) {
+            blockedUntil.values().removeIf(until -> until <= nowMillis);
+        }
+
+        private void sync(final long nowMillis) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // Counts recorded between remove and sum are lost, which is fine for an approximate limit
+            List<String> ids = new ArrayList<>(pending.size());
+            List<Long> counts = new ArrayList<>(pending.size());
+            for (String id : pending.keySet()) {
+                var adder = pending.remove(id);
+                if (adder != null) {
+                    ids.add(id);
+                    counts.add(adder.sum());
+                }
+            }
+
+            long currentWindow = nowMillis / windowMillis;
+            var results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    var currentKey = bytes(key(ids.get(i), currentWindow));
+                    connection.stringCommands().incrBy(currentKey, counts.get(i));
+                    connection.keyCommands().pExpire(currentKey, windowMillis * 2);
+                    connection.stringCommands().get(bytes(key(ids.get(i), currentWindow - 1)));
+                }
+                return null;
+            });
+
+            // Sliding window estimate: the previous window weighted by how much of it still overlaps
+            double previousWeight = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+            long windowEnd = (currentWindow + 1) * windowMillis;
+            for (int i = 0; i < ids.size(); i++) {
+                var current = results.get(i * 3);
+                var previous = results.get(i * 3 + 2);
+                double estimate = (current != null ? ((Number) current).longValue() : 0)
+                        + (previous != null ? Long.parseLong(previous.toString()) : 0) * previousWeight;
+                if (estimate >= limit) {
+                    blockedUntil.put(ids.get(i), windowEnd);
+                }
+            }
+        }
+
+        private String key(final String id, final long window) {
+            return KEY_PREFIX + name + ":" + id + ":" + window;
+        }
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Answers shorten and redirect requests over the client's limit with 429 before they reach the controller
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final ClientIpAddressResolver clientIpAddressResolver;
+    private final ObjectMapper objectMapper;
+    private final String apiKeyHeader;
+
+    public RateLimitFilter(final RateLimiter rateLimiter,
+                           final ClientIpAddressResolver clientIpAddressResolver,
+                           final ObjectMapper objectMapper,
+                           @Value("${app.rate-limit.api-key-header:X-API-Key}") final String apiKeyHeader) {
+        this.rateLimiter = rateLimiter;
+        this.clientIpAddressResolver = clientIpAddressResolver;
+        this.objectMapper = objectMapper;
+        this.apiKeyHeader = apiKeyHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        var scope = RateLimitScope.of(HttpMethod.valueOf(request.getMethod()), request.getRequestURI());
+        if (scope == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var clientIp = clientIpAddressResolver.resolve(request);
+        long wait = rateLimiter.tryAcquire(scope, clientIp, request.getHeader(apiKeyHeader));
+        if (wait == RateLimiter.ALLOWED) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = retryAfterSeconds(wait);
+        log.debug("Rate limited {} request from {} for {}s", scope, clientIp, retryAfterSeconds);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", "Too Many Requests");
+        body.put("message", "Rate limit exceeded, retry after " + retryAfterSeconds + " second(s)");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    // Retry-After is in whole seconds, rounded up so a client that honours it is let through
+    public static long retryAfterSeconds(final long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+}
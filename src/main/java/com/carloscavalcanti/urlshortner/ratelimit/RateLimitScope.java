@@ -0,0 +1,25 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.Locale;
+
+public enum RateLimitScope {
+    SHORTEN,
+    REDIRECT;
+
+    // Shortening is POST /api/shorten[/batch], a redirect is a GET of a single path segment
+    public static RateLimitScope of(final HttpMethod method, final String path) {
+        if (HttpMethod.POST.equals(method) && path.startsWith("/api/shorten")) {
+            return SHORTEN;
+        }
+        if (HttpMethod.GET.equals(method) && path.length() > 1 && path.lastIndexOf('/') == 0) {
+            return REDIRECT;
+        }
+        return null;
+    }
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
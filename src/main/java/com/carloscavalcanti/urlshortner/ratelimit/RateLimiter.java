@@ -0,0 +1,118 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Per-client limits for shortening and redirects. Every client IP, and every API key when one is sent, has its own
+// in-process token bucket, and the cluster-wide Redis window is consulted through a local block list only.
+@Component
+public class RateLimiter {
+
+    public static final long ALLOWED = 0;
+
+    private final boolean enabled;
+    private final Map<RateLimitScope, Dimension> byClientIp = new EnumMap<>(RateLimitScope.class);
+    private final Map<RateLimitScope, Dimension> byApiKey = new EnumMap<>(RateLimitScope.class);
+
+    public RateLimiter(final ClusterRateLimiter clusterRateLimiter,
+                       final MeterRegistry meterRegistry,
+                       @Value("${app.rate-limit.enabled:true}") final boolean enabled,
+                       @Value("${app.rate-limit.shorten.requests-per-second:5}") final double shortenRate,
+                       @Value("${app.rate-limit.shorten.burst:20}") final int shortenBurst,
+                       @Value("${app.rate-limit.shorten.cluster-limit:600}") final long shortenClusterLimit,
+                       @Value("${app.rate-limit.redirect.requests-per-second:100}") final double redirectRate,
+                       @Value("${app.rate-limit.redirect.burst:200}") final int redirectBurst,
+                       @Value("${app.rate-limit.redirect.cluster-limit:30000}") final long redirectClusterLimit,
+                       @Value("${app.rate-limit.max-clients:100000}") final long maxClients,
+                       @Value("${app.rate-limit.idle-timeout:10m}") final Duration idleTimeout) {
+        this.enabled = enabled;
+        for (RateLimitScope scope : RateLimitScope.values()) {
+            double rate = scope == RateLimitScope.SHORTEN ? shortenRate : redirectRate;
+            int burst = scope == RateLimitScope.SHORTEN ? shortenBurst : redirectBurst;
+            long clusterLimit = scope == RateLimitScope.SHORTEN ? shortenClusterLimit : redirectClusterLimit;
+            byClientIp.put(scope, new Dimension(scope, "ip", rate, burst, maxClients, idleTimeout,
+                    clusterRateLimiter.register(scope.tagValue() + ":ip", clusterLimit), meterRegistry));
+            byApiKey.put(scope, new Dimension(scope, "api_key", rate, burst, maxClients, idleTimeout,
+                    clusterRateLimiter.register(scope.tagValue() + ":key", clusterLimit), meterRegistry));
+        }
+    }
+
+    // Returns ALLOWED or the nanoseconds until the client may retry
+    public long tryAcquire(final RateLimitScope scope, final String clientIp, final String apiKey) {
+        if (!enabled) {
+            return ALLOWED;
+        }
+
+        long nowNanos = System.nanoTime();
+        long wait = clientIp != null ? byClientIp.get(scope).tryAcquire(clientIp, nowNanos) : ALLOWED;
+        if (wait == ALLOWED && apiKey != null && !apiKey.isEmpty()) {
+            wait = byApiKey.get(scope).tryAcquire(apiKey, nowNanos);
+        }
+        return wait;
+    }
+
+    // Buckets and cluster window for one scope and kind of client id, the bucket factory is built once so the
+    // request path does not allocate a capturing lambda
+    private static final class Dimension {
+
+        private final Cache<String, TokenBucket> buckets;
+        private final Function<String, TokenBucket> newBucket;
+        private final ClusterRateLimiter.Window window;
+        private final Counter localRejections;
+        private final Counter clusterRejections;
+
+        private Dimension(final RateLimitScope scope, final String clientType, final double rate, final int burst,
+                          final long maxClients, final Duration idleTimeout, final ClusterRateLimiter.Window window,
+                          final MeterRegistry meterRegistry) {
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxClients)
+                    .expireAfterAccess(idleTimeout)
+                    .build();
+            this.newBucket = id -> new TokenBucket(rate, burst, System.nanoTime());
+            this.window = window;
+            this.localRejections = rejectionCounter(meterRegistry, scope, clientType, "local");
+            this.clusterRejections = rejectionCounter(meterRegistry, scope, clientType, "cluster");
+        }
+
+        private long tryAcquire(final String id, final long nowNanos) {
+            if (window != null) {
+                long blockedMillis = window.retryAfterMillis(id, System.currentTimeMillis());
+                if (blockedMillis > 0) {
+                    clusterRejections.increment();
+                    return TimeUnit.MILLISECONDS.toNanos(blockedMillis);
+                }
+            }
+
+            long wait = buckets.get(id, newBucket).tryAcquire(nowNanos);
+            if (wait != ALLOWED) {
+                localRejections.increment();
+                return wait;
+            }
+
+            if (window != null) {
+                window.record(id);
+            }
+            return ALLOWED;
+        }
+
+        private static Counter rejectionCounter(final MeterRegistry meterRegistry, final RateLimitScope scope,
+                                                final String clientType, final String tier) {
+            return Counter.builder("rate.limit.rejections")
+                    .description("Requests answered with 429")
+                    .tag("scope", scope.tagValue())
+                    .tag("client", clientType)
+                    .tag("tier", tier)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.carloscavalcanti.urlshortner.reactive;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import com.carloscavalcanti.urlshortner.ratelimit.RateLimitFilter;
+import com.carloscavalcanti.urlshortner.ratelimit.RateLimitScope;
+import com.carloscavalcanti.urlshortner.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// Same per-client limits as the servlet RateLimitFilter, checked on the event loop since it never blocks
+@Component
+@Profile(ReactiveRedirectConfig.PROFILE)
+public class ReactiveRateLimitFilter implements WebFilter {
+
+    private final RateLimiter rateLimiter;
+    private final ClientIpAddressResolver clientIpAddressResolver;
+    private final String apiKeyHeader;
+
+    public ReactiveRateLimitFilter(final RateLimiter rateLimiter,
+                                   final ClientIpAddressResolver clientIpAddressResolver,
+                                   @Value("${app.rate-limit.api-key-header:X-API-Key}") final String apiKeyHeader) {
+        this.rateLimiter = rateLimiter;
+        this.clientIpAddressResolver = clientIpAddressResolver;
+        this.apiKeyHeader = apiKeyHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        var request = exchange.getRequest();
+        var scope = RateLimitScope.of(request.getMethod(), request.getPath().value());
+        if (scope == null) {
+            return chain.filter(exchange);
+        }
+
+        long wait = rateLimiter.tryAcquire(scope, clientIpAddressResolver.resolve(request),
+                request.getHeaders().getFirst(apiKeyHeader));
+        if (wait == RateLimiter.ALLOWED) {
+            return chain.filter(exchange);
+        }
+
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(RateLimitFilter.retryAfterSeconds(wait)));
+        return response.setComplete();
+    }
+}
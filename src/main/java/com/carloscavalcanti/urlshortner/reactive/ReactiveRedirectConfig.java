@@ -0,0 +1,47 @@
+package com.carloscavalcanti.urlshortner.reactive;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+// Redirect-only edge deployment: WebFlux on Netty with reactive Mongo and Redis, enabled by the redirect-edge profile
+@Configuration
+@Profile(ReactiveRedirectConfig.PROFILE)
+public class ReactiveRedirectConfig {
+
+    public static final String PROFILE = "redirect-edge";
+
+    // Netty keeps the thread count small and fixed, even though Tomcat is also on the classpath
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ReactiveRedisTemplate<String, ResolvedUrl> reactiveResolvedUrlRedisTemplate(
+            final ReactiveRedisConnectionFactory connectionFactory, final ObjectMapper objectMapper) {
+        RedisSerializationContext<String, ResolvedUrl> context = RedisSerializationContext
+                .<String, ResolvedUrl>newSerializationContext(new StringRedisSerializer())
+                .value(new Jackson2JsonRedisSerializer<>(objectMapper, ResolvedUrl.class))
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> redirectRoute(final ReactiveRedirectHandler handler) {
+        return RouterFunctions.route(GET("/{shortCode}"), handler::redirect);
+    }
+}
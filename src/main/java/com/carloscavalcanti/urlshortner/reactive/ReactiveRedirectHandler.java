@@ -0,0 +1,60 @@
+package com.carloscavalcanti.urlshortner.reactive;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import com.carloscavalcanti.urlshortner.controller.RedirectCacheHeaders;
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import com.carloscavalcanti.urlshortner.service.click.ClickTrackingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Component
+@Profile(ReactiveRedirectConfig.PROFILE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveRedirectHandler {
+
+    private final ReactiveUrlResolver reactiveUrlResolver;
+    private final ClickTrackingService clickTrackingService;
+    private final RedirectCacheHeaders redirectCacheHeaders;
+    private final ClientIpAddressResolver clientIpAddressResolver;
+
+    public Mono<ServerResponse> redirect(final ServerRequest request) {
+        var shortCode = request.pathVariable("shortCode");
+        var now = LocalDateTime.now();
+
+        return reactiveUrlResolver.resolve(shortCode)
+                .filter(resolved -> resolved.isAvailable(now))
+                .flatMap(resolved -> {
+                    // Enqueue only, the click workers persist off the event loop
+                    clickTrackingService.tryTrack(new ClickEvent(shortCode, System.currentTimeMillis(),
+                            request.headers().firstHeader("User-Agent"), getClientIpAddress(request)));
+
+                    var headers = redirectCacheHeaders.headersFor(resolved, now);
+                    var status = redirectCacheHeaders.isNotModified(resolved,
+                            request.headers().firstHeader(HttpHeaders.IF_NONE_MATCH))
+                            ? HttpStatus.NOT_MODIFIED
+                            : resolved.redirectType().getStatus();
+
+                    return ServerResponse.status(status)
+                            .headers(responseHeaders -> responseHeaders.addAll(headers))
+                            .build();
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.debug("Short code not found or inactive: {}", shortCode);
+                    return ServerResponse.notFound().build();
+                }));
+    }
+
+    private String getClientIpAddress(final ServerRequest request) {
+        return clientIpAddressResolver.resolve(request.exchange().getRequest());
+    }
+}
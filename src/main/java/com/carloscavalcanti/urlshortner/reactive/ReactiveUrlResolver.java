@@ -0,0 +1,86 @@
+package com.carloscavalcanti.urlshortner.reactive;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.snapshot.SnapshotRedirectStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Non-blocking equivalent of the servlet resolution path: snapshot store, filter, local cache, Redis, then Mongo
+@Component
+@Profile(ReactiveRedirectConfig.PROFILE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveUrlResolver {
+
+    private final ShortCodeFilter shortCodeFilter;
+    private final UrlResolutionCache urlResolutionCache;
+    private final ReactiveRedisTemplate<String, ResolvedUrl> reactiveResolvedUrlRedisTemplate;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final SnapshotRedirectStore snapshotRedirectStore;
+
+    public Mono<ResolvedUrl> resolve(final String shortCode) {
+        // Page faults on the mapped snapshot are the only blocking this can do, and only for cold pages
+        var stored = snapshotRedirectStore.find(shortCode);
+        if (stored != null) {
+            return Mono.just(stored);
+        }
+
+        if (!shortCodeFilter.mightExist(shortCode)) {
+            return Mono.empty();
+        }
+
+        var local = urlResolutionCache.getLocal(shortCode);
+        if (local != null) {
+            return Mono.just(local);
+        }
+
+        return getRemote(shortCode)
+                .switchIfEmpty(Mono.defer(() -> load(shortCode)));
+    }
+
+    private Mono<ResolvedUrl> getRemote(final String shortCode) {
+        return reactiveResolvedUrlRedisTemplate.opsForValue().get(UrlResolutionCache.KEY_PREFIX + shortCode)
+                .doOnNext(resolved -> {
+                    urlResolutionCache.recordRemoteLookup(true);
+                    urlResolutionCache.putLocal(shortCode, resolved);
+                })
+                .onErrorResume(e -> {
+                    // Redis is an optimisation only, fall through to the database when it is unavailable
+                    log.debug("Unable to read resolution cache entry for {} from Redis", shortCode, e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<ResolvedUrl> load(final String shortCode) {
+        urlResolutionCache.recordRemoteLookup(false);
+
+        // Projected straight into the record, the fields are derived from its components
+        return reactiveMongoTemplate.query(UrlMapping.class)
+                .as(ResolvedUrl.class)
+                .matching(Query.query(Criteria.where("shortCode").is(shortCode)))
+                .first()
+                .flatMap(resolved -> cache(shortCode, resolved))
+                .switchIfEmpty(Mono.fromRunnable(() -> shortCodeFilter.recordMissing(shortCode)));
+    }
+
+    private Mono<ResolvedUrl> cache(final String shortCode, final ResolvedUrl resolved) {
+        urlResolutionCache.putLocal(shortCode, resolved);
+        return reactiveResolvedUrlRedisTemplate.opsForValue()
+                .set(UrlResolutionCache.KEY_PREFIX + shortCode, resolved, urlResolutionCache.remoteTtlFor(resolved))
+                .onErrorResume(e -> {
+                    log.debug("Unable to write resolution cache entry for {} to Redis", shortCode, e);
+                    return Mono.just(false);
+                })
+                .thenReturn(resolved);
+    }
+}
@@ -1,17 +1,25 @@
 package com.carloscavalcanti.urlshortner.repository;
 
+import com.carloscavalcanti.urlshortner.model.DedupMatch;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
 import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingSummary;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+// Hot paths read record projections, so only the fields they use are fetched and decoded
 @Repository
 public interface UrlMappingRepository extends MongoRepository<UrlMapping, String> {
 
-    Optional<UrlMapping> findByShortCode(String shortCode);
+    Optional<ResolvedUrl> findResolvedUrlByShortCode(String shortCode);
 
-    Optional<UrlMapping> findByOriginalUrl(String originalUrl);
+    Optional<UrlMappingSummary> findSummaryByShortCode(String shortCode);
 
-    boolean existsByShortCode(String shortCode);
+    Optional<DedupMatch> findFirstByOriginalUrlHashAndActiveTrue(String originalUrlHash);
+
+    List<DedupMatch> findByOriginalUrlHashInAndActiveTrue(Collection<String> originalUrlHashes);
 }
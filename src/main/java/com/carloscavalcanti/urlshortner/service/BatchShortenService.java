@@ -0,0 +1,224 @@
+package com.carloscavalcanti.urlshortner.service;
+
+import com.carloscavalcanti.urlshortner.dto.BatchShortenResultDTO;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlRequestDTO;
+import com.carloscavalcanti.urlshortner.model.DedupMatch;
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import com.carloscavalcanti.urlshortner.service.dedup.UrlNormalizer;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.DedupSource;
+import com.carloscavalcanti.urlshortner.service.shortcode.ShortCodeGenerator;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Shortens a chunk of URLs with one dedup query and one unordered bulk insert
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchShortenService {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UrlMappingRepository urlMappingRepository;
+    private final UrlNormalizer urlNormalizer;
+    private final ShortenDedupCache shortenDedupCache;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final Validator validator;
+    private final ShortenerMetrics shortenerMetrics;
+
+    @Value("${app.base-url}")
+    private String baseUrl;
+
+    @Value("${app.short-code.max-attempts:5}")
+    private int maxShortCodeAttempts;
+
+    // Results are returned in input order; firstIndex is the position of requests[0] in the whole batch
+    public List<BatchShortenResultDTO> shortenBatch(final List<ShortenUrlRequestDTO> requests, final int firstIndex) {
+        var results = new BatchShortenResultDTO[requests.size()];
+
+        // Validate and group positions by URL hash, so duplicates within the batch share one code
+        Map<String, List<Integer>> positionsByHash = new LinkedHashMap<>();
+        Map<String, String> urlByHash = new HashMap<>();
+        Map<String, RedirectType> redirectTypeByHash = new HashMap<>();
+        Map<String, LocalDateTime> expiresAtByHash = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            var request = requests.get(i);
+            var longUrl = request == null ? null : request.getLongUrl();
+            var violation = request == null ? "Item must be an object with a longUrl" : firstViolation(request);
+            if (violation != null) {
+                results[i] = failed(firstIndex + i, longUrl, violation);
+                continue;
+            }
+            var redirectType = RedirectType.orDefault(request.getRedirectType());
+            var hash = urlNormalizer.fingerprint(longUrl, redirectType, request.getExpiresAt());
+            positionsByHash.computeIfAbsent(hash, k -> new ArrayList<>()).add(i);
+            urlByHash.putIfAbsent(hash, longUrl);
+            redirectTypeByHash.putIfAbsent(hash, redirectType);
+            if (request.getExpiresAt() != null) {
+                expiresAtByHash.putIfAbsent(hash, request.getExpiresAt());
+            }
+        }
+
+        // Resolve already-shortened URLs from the dedup cache, then with a single $in query
+        Map<String, String> existingCodes = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String hash : positionsByHash.keySet()) {
+            long lookupStart = System.nanoTime();
+            var cached = shortenDedupCache.get(hash);
+            shortenerMetrics.recordDedupLookup(DedupSource.CACHE, cached != null, lookupStart);
+            if (cached != null) {
+                existingCodes.put(hash, cached);
+            } else {
+                uncached.add(hash);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            long lookupStart = System.nanoTime();
+            var matches = urlMappingRepository.findByOriginalUrlHashInAndActiveTrue(uncached);
+            shortenerMetrics.recordDedupLookup(DedupSource.DATABASE, !matches.isEmpty(), lookupStart);
+            for (DedupMatch match : matches) {
+                existingCodes.putIfAbsent(match.originalUrlHash(), match.shortCode());
+                shortenDedupCache.put(match.originalUrlHash(), match.shortCode());
+            }
+        }
+
+        List<String> newHashes = positionsByHash.keySet().stream()
+                .filter(hash -> !existingCodes.containsKey(hash))
+                .toList();
+        Map<String, String> createdCodes = new HashMap<>();
+        Map<String, String> insertErrors = insertMappings(newHashes, urlByHash, redirectTypeByHash, expiresAtByHash,
+                createdCodes);
+
+        positionsByHash.forEach((hash, positions) -> {
+            for (int position : positions) {
+                var longUrl = requests.get(position).getLongUrl();
+                if (existingCodes.containsKey(hash)) {
+                    results[position] = succeeded(firstIndex + position, longUrl, existingCodes.get(hash),
+                            BatchShortenResultDTO.Status.EXISTING);
+                } else if (createdCodes.containsKey(hash)) {
+                    results[position] = succeeded(firstIndex + position, longUrl, createdCodes.get(hash),
+                            BatchShortenResultDTO.Status.CREATED);
+                } else {
+                    results[position] = failed(firstIndex + position, longUrl,
+                            insertErrors.getOrDefault(hash, "Unable to shorten URL"));
+                }
+            }
+        });
+
+        return List.of(results);
+    }
+
+    private Map<String, String> insertMappings(final List<String> hashes,
+                                               final Map<String, String> urlByHash,
+                                               final Map<String, RedirectType> redirectTypeByHash,
+                                               final Map<String, LocalDateTime> expiresAtByHash,
+                                               final Map<String, String> createdCodes) {
+        Map<String, String> errors = new HashMap<>();
+        List<String> pending = hashes;
+
+        for (int attempt = 1; attempt <= maxShortCodeAttempts && !pending.isEmpty(); attempt++) {
+            var now = LocalDateTime.now();
+            List<UrlMapping> mappings = pending.stream()
+                    .map(hash -> {
+                        var shortCode = shortCodeGenerator.next();
+                        return UrlMapping.builder()
+                                .id(shortCode)
+                                .shortCode(shortCode)
+                                .originalUrl(urlByHash.get(hash))
+                                .originalUrlHash(hash)
+                                .redirectType(redirectTypeByHash.get(hash))
+                                .expiresAt(expiresAtByHash.get(hash))
+                                .createdAt(now)
+                                .updatedAt(now)
+                                .build();
+                    })
+                    .toList();
+
+            Map<Integer, BulkWriteError> failures = Map.of();
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)
+                        .insert(mappings)
+                        .execute();
+            } catch (BulkOperationException e) {
+                failures = e.getErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, error -> error));
+            }
+
+            // Short code collisions are retried with fresh codes, any other write error fails the item
+            List<String> retry = new ArrayList<>();
+            for (int i = 0; i < mappings.size(); i++) {
+                var mapping = mappings.get(i);
+                var failure = failures.get(i);
+                if (failure == null) {
+                    createdCodes.put(mapping.getOriginalUrlHash(), mapping.getShortCode());
+                    shortenerMetrics.recordBatchCodeAttempts(attempt);
+                    shortCodeFilter.add(mapping.getShortCode());
+                    shortenDedupCache.put(mapping.getOriginalUrlHash(), mapping.getShortCode());
+                } else if (failure.getCode() == DUPLICATE_KEY_ERROR) {
+                    retry.add(mapping.getOriginalUrlHash());
+                } else {
+                    errors.put(mapping.getOriginalUrlHash(), failure.getMessage());
+                }
+            }
+            pending = retry;
+        }
+
+        pending.forEach(hash -> {
+            errors.put(hash, "Unable to allocate a unique short code");
+            shortenerMetrics.recordBatchCodeAttempts(maxShortCodeAttempts);
+        });
+        if (!errors.isEmpty()) {
+            log.warn("Batch shorten failed for {} of {} new URL(s)", errors.size(), hashes.size());
+        }
+        return errors;
+    }
+
+    private String firstViolation(final ShortenUrlRequestDTO request) {
+        return validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private BatchShortenResultDTO succeeded(final int index, final String longUrl, final String shortCode,
+                                            final BatchShortenResultDTO.Status status) {
+        return BatchShortenResultDTO.builder()
+                .index(index)
+                .longUrl(longUrl)
+                .shortCode(shortCode)
+                .shortUrl(baseUrl + "/" + shortCode)
+                .status(status)
+                .build();
+    }
+
+    private BatchShortenResultDTO failed(final int index, final String longUrl, final String error) {
+        return BatchShortenResultDTO.builder()
+                .index(index)
+                .longUrl(longUrl)
+                .status(BatchShortenResultDTO.Status.FAILED)
+                .error(error)
+                .build();
+    }
+}
@@ -1,15 +1,32 @@
 package com.carloscavalcanti.urlshortner.service;
 
 import com.carloscavalcanti.urlshortner.dto.*;
-import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
 import com.carloscavalcanti.urlshortner.model.UrlMapping;
 import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.analytics.ClickAnalyticsService;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.click.ClickTrackingService;
+import com.carloscavalcanti.urlshortner.service.click.StripedClickCounter;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import com.carloscavalcanti.urlshortner.service.dedup.UrlNormalizer;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.DedupSource;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.RedirectOutcome;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.ShortenOutcome;
+import com.carloscavalcanti.urlshortner.service.shortcode.ShortCodeGenerator;
+import com.carloscavalcanti.urlshortner.service.snapshot.SnapshotRedirectStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -19,114 +36,182 @@ import java.util.Optional;
 public class UrlShortenerService {
 
     private final UrlMappingRepository urlMappingRepository;
+    private final ClickAnalyticsService clickAnalyticsService;
     private final AnalyticsResponseDTOMapper analyticsMapper;
     private final ShortenUrlResponseDTOMapper shortenMapper;
+    private final ClickTrackingService clickTrackingService;
+    private final UrlResolutionCache urlResolutionCache;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final UrlNormalizer urlNormalizer;
+    private final ShortenDedupCache shortenDedupCache;
+    private final StripedClickCounter stripedClickCounter;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final ShortenerMetrics shortenerMetrics;
+    private final SnapshotRedirectStore snapshotRedirectStore;
 
     @Value("${app.base-url}")
     private String baseUrl;
 
-    @Value("${app.short-code-length:6}")
-    private int shortCodeLength;
-
-    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final SecureRandom RANDOM = new SecureRandom();
+    @Value("${app.short-code.max-attempts:5}")
+    private int maxShortCodeAttempts;
 
     public ShortenUrlResponseDTO shortenUrl(final ShortenUrlRequestDTO request) {
-        var originalUrl = request.getLongUrl();
-
-        // Check if URL already exists
-        var existingMapping = urlMappingRepository.findByOriginalUrl(originalUrl);
-        if (existingMapping.isPresent() && existingMapping.get().isActive()) {
-            var mapping = existingMapping.get();
-            log.info("URL already exists, returning existing short code: {}", mapping.getShortCode());
-
-            return shortenMapper.toDTO(mapping, baseUrl);
+        long start = System.nanoTime();
+        try {
+            return shortenOrReuse(request, start);
+        } catch (RuntimeException e) {
+            shortenerMetrics.recordShorten(ShortenOutcome.FAILED, start);
+            throw e;
         }
+    }
 
-        // Generate unique short code
-        var shortCode = generateUniqueShortCode();
+    // Returns null when the code does not exist, is inactive or has expired
+    public ResolvedUrl redirectAndTrack(final String shortCode,
+                                        final String userAgent,
+                                        final String ipAddress) {
+        long start = System.nanoTime();
+
+        // The mapped snapshot answers without the cache or database, only codes it does not know fall through
+        var resolved = snapshotRedirectStore.find(shortCode);
+        if (resolved == null) {
+            // Codes the filter rules out cannot exist, answer without touching the database
+            if (!shortCodeFilter.mightExist(shortCode)) {
+                log.debug("Short code rejected by filter: {}", shortCode);
+                shortenerMetrics.recordRedirect(RedirectOutcome.FILTERED, start);
+                return null;
+            }
+            resolved = urlResolutionCache.get(shortCode, this::loadResolvedUrl).orElse(null);
+        }
 
-        // Create and save mapping
-        var urlMapping = UrlMapping.builder()
-                .shortCode(shortCode)
-                .originalUrl(originalUrl)
-                .build();
+        if (resolved == null || !resolved.isAvailable()) {
+            log.warn("Short code not found, inactive or expired: {}", shortCode);
+            shortenerMetrics.recordRedirect(resolved == null ? RedirectOutcome.NOT_FOUND
+                    : RedirectOutcome.UNAVAILABLE, start);
+            return null;
+        }
 
-        urlMappingRepository.save(urlMapping);
+        // Track the click asynchronously, the batch workers persist it off the request thread
+        clickTrackingService.track(new ClickEvent(shortCode, System.currentTimeMillis(), userAgent, ipAddress));
 
-        log.info("Created new URL mapping: {} -> {}", shortCode, originalUrl);
+        log.info("Redirecting {} to {}", shortCode, resolved.originalUrl());
+        shortenerMetrics.recordRedirect(RedirectOutcome.REDIRECTED, start);
 
-        return shortenMapper.toDTO(urlMapping, baseUrl);
+        return resolved;
     }
 
-    public String redirectAndTrack(final String shortCode,
-                                   final String userAgent,
-                                   final String ipAddress) {
+    public AnalyticsResponseDTO getAnalytics(final String shortCode) {
+        return getAnalytics(shortCode, null, null, RollupGranularity.HOUR);
+    }
 
-        Optional<UrlMapping> mappingOpt = urlMappingRepository.findByShortCode(shortCode);
+    // Reads pre-aggregated rollups and a capped tail of raw clicks, so cost does not grow with total clicks
+    public AnalyticsResponseDTO getAnalytics(final String shortCode,
+                                             final LocalDateTime from,
+                                             final LocalDateTime to,
+                                             final RollupGranularity granularity) {
+        var summaryOpt = urlMappingRepository.findSummaryByShortCode(shortCode);
 
-        if (mappingOpt.isEmpty() || !mappingOpt.get().isActive()) {
-            log.warn("Short code not found or inactive: {}", shortCode);
+        if (summaryOpt.isEmpty()) {
+            log.warn("Analytics requested for non-existent short code: {}", shortCode);
             return null;
         }
 
-        var mapping = mappingOpt.get();
-
-        // Track the click
-        var clickInfo = ClickInfo.builder()
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .timestamp(LocalDateTime.now())
-                .build();
+        var summary = summaryOpt.get();
+        var totalClicks = summary.persistedClicks() + stripedClickCounter.getPendingCount(shortCode);
 
-        mapping.getClicks().add(clickInfo);
-        mapping.incrementClickCount();
+        var series = clickAnalyticsService.getSeries(shortCode, from, to, granularity);
+        var recentClicks = clickAnalyticsService.getRecentClicks(shortCode);
+        var uniqueVisitors = uniqueVisitorCounter.countAllTime(shortCode);
 
-        urlMappingRepository.save(mapping);
-
-        log.info("Redirecting {} to {}, total clicks: {}",
-                shortCode, mapping.getOriginalUrl(), mapping.getClickCount()
-        );
-
-        return mapping.getOriginalUrl();
+        return analyticsMapper.toDTO(summary, totalClicks, uniqueVisitors, recentClicks, series);
     }
 
-    public AnalyticsResponseDTO getAnalytics(final String shortCode) {
-        var mappingOpt = urlMappingRepository.findByShortCode(shortCode);
+    private ShortenUrlResponseDTO shortenOrReuse(final ShortenUrlRequestDTO request, final long start) {
+        var originalUrl = request.getLongUrl();
+        var redirectType = RedirectType.orDefault(request.getRedirectType());
+        var expiresAt = request.getExpiresAt();
+
+        var urlHash = urlNormalizer.fingerprint(originalUrl, redirectType, expiresAt);
+
+        // Check if an equivalent URL was shortened recently, then fall back to the indexed hash lookup
+        long lookupStart = System.nanoTime();
+        var cachedShortCode = shortenDedupCache.get(urlHash);
+        shortenerMetrics.recordDedupLookup(DedupSource.CACHE, cachedShortCode != null, lookupStart);
+        if (cachedShortCode != null) {
+            log.info("URL already exists, returning cached short code: {}", cachedShortCode);
+            shortenerMetrics.recordShorten(ShortenOutcome.EXISTING, start);
+            return existingResponse(cachedShortCode, originalUrl, redirectType, expiresAt);
+        }
 
-        if (mappingOpt.isEmpty()) {
-            log.warn("Analytics requested for non-existent short code: {}", shortCode);
-            return null;
+        // The fingerprint covers redirect type and expiry, so a match has the requested ones
+        lookupStart = System.nanoTime();
+        var existingMatch = urlMappingRepository.findFirstByOriginalUrlHashAndActiveTrue(urlHash);
+        shortenerMetrics.recordDedupLookup(DedupSource.DATABASE, existingMatch.isPresent(), lookupStart);
+        if (existingMatch.isPresent()) {
+            var match = existingMatch.get();
+            log.info("URL already exists, returning existing short code: {}", match.shortCode());
+            shortenDedupCache.put(urlHash, match.shortCode());
+            shortenerMetrics.recordShorten(ShortenOutcome.EXISTING, start);
+            return existingResponse(match.shortCode(), match.originalUrl(), redirectType, expiresAt);
         }
 
-        var mapping = mappingOpt.get();
+        // Generate a short code and save the mapping, the unique index is the collision check
+        var urlMapping = saveWithGeneratedShortCode(originalUrl, urlHash, redirectType, expiresAt);
+        var shortCode = urlMapping.getShortCode();
 
-        return analyticsMapper.toDTO(mapping);
+        shortCodeFilter.add(shortCode);
+        shortenDedupCache.put(urlHash, shortCode);
 
-//        return new AnalyticsResponseDTO(
-//                mapping.getShortCode(),
-//                mapping.getOriginalUrl(),
-//                mapping.getClickCount(),
-//                mapping.getCreatedAt(),
-//                mapping.getClicks(),
-//                mapping.isActive()
-//        );
+        log.info("Created new URL mapping: {} -> {}", shortCode, originalUrl);
+        shortenerMetrics.recordShorten(ShortenOutcome.CREATED, start);
+
+        return shortenMapper.toDTO(urlMapping, baseUrl);
     }
 
-    private String generateUniqueShortCode() {
-        String shortCode;
-        do {
-            shortCode = generateRandomString(shortCodeLength);
-        } while (urlMappingRepository.existsByShortCode(shortCode));
+    private Optional<ResolvedUrl> loadResolvedUrl(final String shortCode) {
+        var resolved = urlMappingRepository.findResolvedUrlByShortCode(shortCode);
+        if (resolved.isEmpty()) {
+            shortCodeFilter.recordMissing(shortCode);
+        }
+        return resolved;
+    }
 
-        return shortCode;
+    private ShortenUrlResponseDTO existingResponse(final String shortCode, final String originalUrl,
+                                                   final RedirectType redirectType, final LocalDateTime expiresAt) {
+        return shortenMapper.toDTO(UrlMapping.builder()
+                .shortCode(shortCode)
+                .originalUrl(originalUrl)
+                .redirectType(redirectType)
+                .expiresAt(expiresAt)
+                .build(), baseUrl);
     }
 
-    private String generateRandomString(final int length) {
-        var sb = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            sb.append(CHARACTERS.charAt(RANDOM.nextInt(CHARACTERS.length())));
+    private UrlMapping saveWithGeneratedShortCode(final String originalUrl, final String urlHash,
+                                                  final RedirectType redirectType, final LocalDateTime expiresAt) {
+        for (int attempt = 1; attempt <= maxShortCodeAttempts; attempt++) {
+            var now = LocalDateTime.now();
+            var shortCode = shortCodeGenerator.next();
+            var urlMapping = UrlMapping.builder()
+                    .id(shortCode)
+                    .shortCode(shortCode)
+                    .originalUrl(originalUrl)
+                    .originalUrlHash(urlHash)
+                    .redirectType(redirectType)
+                    .expiresAt(expiresAt)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build();
+            try {
+                urlMappingRepository.insert(urlMapping);
+                shortenerMetrics.recordCodeAttempts(attempt);
+                return urlMapping;
+            } catch (DuplicateKeyException e) {
+                log.debug("Short code collision on attempt {}: {}", attempt, urlMapping.getShortCode());
+            }
         }
-        return sb.toString();
+
+        shortenerMetrics.recordCodeAttempts(maxShortCodeAttempts);
+        throw new IllegalStateException("Unable to allocate a unique short code after "
+                + maxShortCodeAttempts + " attempts");
     }
 }
@@ -0,0 +1,143 @@
+package com.carloscavalcanti.urlshortner.service.analytics;
+
+import com.carloscavalcanti.urlshortner.dto.ClickSeriesDTO;
+import com.carloscavalcanti.urlshortner.dto.ClickSeriesPointDTO;
+import com.carloscavalcanti.urlshortner.dto.UserAgentCountDTO;
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import com.carloscavalcanti.urlshortner.service.click.IpAddressCodec;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.click.UserAgentDictionary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ClickAnalyticsService {
+
+    private final MongoTemplate mongoTemplate;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final UserAgentDictionary userAgentDictionary;
+    private final int recentClicksLimit;
+    private final int maxPoints;
+    private final int topUserAgentsLimit;
+
+    public ClickAnalyticsService(final MongoTemplate mongoTemplate,
+                                 final UniqueVisitorCounter uniqueVisitorCounter,
+                                 final UserAgentDictionary userAgentDictionary,
+                                 @Value("${app.analytics.recent-clicks-limit:100}") final int recentClicksLimit,
+                                 @Value("${app.analytics.max-points:1440}") final int maxPoints,
+                                 @Value("${app.analytics.top-user-agents:10}") final int topUserAgentsLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.uniqueVisitorCounter = uniqueVisitorCounter;
+        this.userAgentDictionary = userAgentDictionary;
+        this.recentClicksLimit = recentClicksLimit;
+        this.maxPoints = maxPoints;
+        this.topUserAgentsLimit = topUserAgentsLimit;
+    }
+
+    // Newest clicks first, reading only the tail of as many hourly buckets as needed
+    public List<ClickInfo> getRecentClicks(final String shortCode) {
+        List<ClickBucketEntry> entries = new ArrayList<>(recentClicksLimit);
+        if (recentClicksLimit <= 0) {
+            return List.of();
+        }
+
+        // Within an hour that rolled over, the later overflow documents carry the newer clicks
+        var query = Query.query(Criteria.where("shortCode").is(shortCode))
+                .with(Sort.by(Sort.Direction.DESC, "bucketStart", "_id"));
+        query.fields().slice("clicks", -recentClicksLimit);
+
+        try (var buckets = mongoTemplate.stream(query, ClickBucket.class)) {
+            var iterator = buckets.iterator();
+            while (iterator.hasNext() && entries.size() < recentClicksLimit) {
+                var clicks = iterator.next().getClicks();
+                for (int i = clicks.size() - 1; i >= 0 && entries.size() < recentClicksLimit; i--) {
+                    entries.add(clicks.get(i));
+                }
+            }
+        }
+
+        // Decode interned user agents with one dictionary lookup for the whole page
+        var userAgents = userAgentDictionary.resolveAll(entries.stream().map(ClickBucketEntry::userAgentId).toList());
+        List<ClickInfo> recentClicks = new ArrayList<>(entries.size());
+        for (ClickBucketEntry entry : entries) {
+            recentClicks.add(new ClickInfo(entry.localTimestamp(),
+                    entry.hasInlineUserAgent() ? entry.inlineUserAgent() : userAgents.get(entry.userAgentId()),
+                    IpAddressCodec.unpack(entry.ipAddress())));
+        }
+        return recentClicks;
+    }
+
+    public ClickSeriesDTO getSeries(final String shortCode,
+                                    final LocalDateTime from,
+                                    final LocalDateTime to,
+                                    final RollupGranularity granularity) {
+        var end = to != null ? to : LocalDateTime.now();
+        var start = from != null ? from : end.minus(granularity.getDefaultWindow());
+
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (granularity.bucketsBetween(start, end) > maxPoints) {
+            throw new IllegalArgumentException("Requested range exceeds " + maxPoints + " " + granularity
+                    + " points, use a coarser granularity or a shorter range");
+        }
+
+        var query = Query.query(Criteria.where("shortCode").is(shortCode)
+                        .and("granularity").is(granularity.name())
+                        .and("bucketStart").gte(granularity.truncate(start)).lt(end))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        Map<LocalDateTime, ClickRollup> rollups = new HashMap<>();
+        for (ClickRollup rollup : mongoTemplate.find(query, ClickRollup.class)) {
+            rollups.put(rollup.getBucketStart(), rollup);
+        }
+
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (var bucket = granularity.truncate(start); bucket.isBefore(end); bucket = granularity.next(bucket)) {
+            buckets.add(bucket);
+        }
+        var visitorsPerBucket = uniqueVisitorCounter.countPerWindow(shortCode, granularity, buckets);
+
+        long clicks = 0;
+        Map<String, Long> userAgents = new HashMap<>();
+        List<ClickSeriesPointDTO> points = new ArrayList<>(buckets.size());
+
+        // Dense series, buckets without a rollup document had no clicks
+        for (int i = 0; i < buckets.size(); i++) {
+            var rollup = rollups.get(buckets.get(i));
+            var visitors = visitorsPerBucket.isEmpty() ? null : visitorsPerBucket.get(i);
+            if (rollup == null) {
+                points.add(new ClickSeriesPointDTO(buckets.get(i), 0, visitors));
+                continue;
+            }
+
+            points.add(new ClickSeriesPointDTO(buckets.get(i), rollup.getCount(), visitors));
+            clicks += rollup.getCount();
+            rollup.getUserAgents().forEach((key, count) -> userAgents.merge(key, count, Long::sum));
+        }
+
+        var topUserAgents = userAgents.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(topUserAgentsLimit)
+                .map(entry -> new UserAgentCountDTO(ClickRollup.decodeUserAgentKey(entry.getKey()), entry.getValue()))
+                .toList();
+
+        var uniqueVisitors = uniqueVisitorCounter.countRange(shortCode, granularity, start, end);
+
+        return new ClickSeriesDTO(granularity, start, end, clicks, uniqueVisitors, points, topUserAgents);
+    }
+}
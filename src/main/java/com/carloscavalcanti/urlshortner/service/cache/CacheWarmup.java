@@ -0,0 +1,109 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Preloads the busiest mappings into the local resolution tier on boot. Runners complete before the application
+// reports ready, so a restarted node only receives traffic once its cache is warm.
+@Component
+@ConditionalOnProperty(name = "app.cache-warmup.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CacheWarmup implements ApplicationRunner {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final UrlResolutionCache urlResolutionCache;
+    private final WarmupSource source;
+    private final int maxEntries;
+    private final Duration timeBudget;
+    private final Duration recentWindow;
+
+    public CacheWarmup(final MongoTemplate mongoTemplate,
+                       final UrlResolutionCache urlResolutionCache,
+                       @Value("${app.cache-warmup.source:RECENT}") final WarmupSource source,
+                       @Value("${app.cache-warmup.max-entries:10000}") final int maxEntries,
+                       @Value("${app.cache-warmup.time-budget:20s}") final Duration timeBudget,
+                       @Value("${app.cache-warmup.recent-window:24h}") final Duration recentWindow) {
+        this.mongoTemplate = mongoTemplate;
+        this.urlResolutionCache = urlResolutionCache;
+        this.source = source;
+        this.maxEntries = maxEntries;
+        this.timeBudget = timeBudget;
+        this.recentWindow = recentWindow;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        int warmed = 0;
+
+        try {
+            var shortCodes = source == WarmupSource.RECENT ? recentlyClicked() : mostClicked();
+
+            for (int from = 0; from < shortCodes.size() && System.nanoTime() < deadline; from += CHUNK_SIZE) {
+                var chunk = shortCodes.subList(from, Math.min(from + CHUNK_SIZE, shortCodes.size()));
+                var query = Query.query(Criteria.where("shortCode").in(chunk));
+                query.fields().include("shortCode", "originalUrl", "active", "expiresAt", "redirectType");
+
+                for (UrlMapping mapping : mongoTemplate.find(query, UrlMapping.class)) {
+                    urlResolutionCache.putLocal(mapping.getShortCode(), ResolvedUrl.from(mapping));
+                    warmed++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // A cold cache is slower, not broken, so never block startup on warm-up
+            log.warn("Cache warm-up aborted after {} entries", warmed, e);
+        }
+
+        log.info("Warmed resolution cache with {} {} mapping(s) in {} ms", warmed, source,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private List<String> recentlyClicked() {
+        var since = RollupGranularity.HOUR.truncate(LocalDateTime.now().minus(recentWindow));
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(RollupGranularity.HOUR.name())
+                        .and("bucketStart").gte(since)),
+                Aggregation.group("shortCode").sum("count").as("clicks"),
+                Aggregation.sort(Sort.Direction.DESC, "clicks"),
+                Aggregation.limit(maxEntries))
+                .withOptions(AggregationOptions.builder().maxTime(timeBudget).build());
+
+        return mongoTemplate.aggregate(aggregation, ClickRollup.class, Document.class).getMappedResults().stream()
+                .map(document -> document.getString("_id"))
+                .toList();
+    }
+
+    private List<String> mostClicked() {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, "clickCount"))
+                .limit(maxEntries)
+                .maxTime(timeBudget);
+        query.fields().include("shortCode");
+
+        return mongoTemplate.find(query, UrlMapping.class).stream()
+                .map(UrlMapping::getShortCode)
+                .toList();
+    }
+}
@@ -0,0 +1,149 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.click.ClickCountSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Detects the short codes taking most redirects and pins them in the local resolution tier. Fed aggregated counts
+// so the redirect thread only pays for a counter increment; the hot set is shared through Redis to pre-warm new nodes.
+@Component
+@Slf4j
+public class HotLinkTracker implements ClickCountSink, ApplicationRunner {
+
+    static final String HOT_LINKS_KEY = "hot-links";
+
+    private final SpaceSavingTopK topK;
+    private final UrlResolutionCache urlResolutionCache;
+    private final UrlMappingRepository urlMappingRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int hotLinks;
+    private final long minClicks;
+    private final Duration window;
+
+    public HotLinkTracker(final UrlResolutionCache urlResolutionCache,
+                          final UrlMappingRepository urlMappingRepository,
+                          final StringRedisTemplate stringRedisTemplate,
+                          @Value("${app.hot-links.counters:1000}") final int counters,
+                          @Value("${app.hot-links.top-k:100}") final int hotLinks,
+                          @Value("${app.hot-links.min-clicks:100}") final long minClicks,
+                          @Value("${app.hot-links.window:1m}") final Duration window) {
+        this.topK = new SpaceSavingTopK(counters);
+        this.urlResolutionCache = urlResolutionCache;
+        this.urlMappingRepository = urlMappingRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.hotLinks = hotLinks;
+        this.minClicks = minClicks;
+        this.window = window;
+    }
+
+    @Override
+    public void write(final Map<String, Long> countsByCode) {
+        countsByCode.forEach(topK::offer);
+    }
+
+    // Pre-warm from the hot set other nodes published, runs before the application reports ready
+    @Override
+    public void run(final ApplicationArguments args) {
+        try {
+            var published = stringRedisTemplate.opsForZSet().reverseRange(HOT_LINKS_KEY, 0, hotLinks - 1L);
+            if (published != null && !published.isEmpty()) {
+                pinAll(new LinkedHashSet<>(published));
+                log.info("Pre-warmed {} hot link(s) from the shared hot set",
+                        urlResolutionCache.getPinnedShortCodes().size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to pre-warm hot links", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.hot-links.window:1m}")
+    public void refresh() {
+        var hot = currentHotLinks();
+        Set<String> hotCodes = hot.stream()
+                .map(SpaceSavingTopK.Entry::key)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        for (String pinned : urlResolutionCache.getPinnedShortCodes()) {
+            if (!hotCodes.contains(pinned)) {
+                urlResolutionCache.unpin(pinned);
+            }
+        }
+        pinAll(hotCodes);
+        publish(hot);
+        topK.decay();
+    }
+
+    public List<SpaceSavingTopK.Entry> currentHotLinks() {
+        return topK.top(hotLinks).stream()
+                .filter(entry -> entry.guaranteedCount() >= minClicks)
+                .toList();
+    }
+
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (SpaceSavingTopK.Entry entry : topK.top(hotLinks)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("shortCode", entry.key());
+            item.put("count", entry.count());
+            item.put("error", entry.error());
+            item.put("pinned", urlResolutionCache.isPinned(entry.key()));
+            top.add(item);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("window", window.toString());
+        stats.put("minClicks", minClicks);
+        stats.put("trackedCounters", topK.size());
+        stats.put("pinned", urlResolutionCache.getPinnedShortCodes().size());
+        stats.put("top", top);
+        return stats;
+    }
+
+    private void pinAll(final Set<String> shortCodes) {
+        for (String shortCode : shortCodes) {
+            if (urlResolutionCache.isPinned(shortCode)) {
+                continue;
+            }
+            urlResolutionCache.get(shortCode, urlMappingRepository::findResolvedUrlByShortCode)
+                    .filter(ResolvedUrl::active)
+                    .ifPresent(resolved -> urlResolutionCache.pin(shortCode, resolved));
+        }
+    }
+
+    // Keeps the shared set bounded to the top-K scores across nodes, it expires once traffic stops
+    private void publish(final List<SpaceSavingTopK.Entry> hot) {
+        if (hot.isEmpty()) {
+            return;
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = hot.stream()
+                    .map(entry -> (ZSetOperations.TypedTuple<String>) new DefaultTypedTuple<>(entry.key(),
+                            (double) entry.guaranteedCount()))
+                    .collect(Collectors.toSet());
+            var zSet = stringRedisTemplate.opsForZSet();
+            zSet.add(HOT_LINKS_KEY, tuples);
+            zSet.removeRange(HOT_LINKS_KEY, 0, -(hotLinks + 1L));
+            stringRedisTemplate.expire(HOT_LINKS_KEY, window.multipliedBy(10));
+        } catch (RuntimeException e) {
+            log.debug("Unable to publish hot links", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.carloscavalcanti.urlshortner.service.change.UrlMappingChangeConsumer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Probabilistic membership filter over every existing short code, so unknown codes are rejected without Mongo
+@Component
+@Slf4j
+public class ShortCodeFilter implements MessageListener, ApplicationRunner, UrlMappingChangeConsumer {
+
+    public static final String ADDITIONS_CHANNEL = "short-code-filter:add";
+
+    private final MongoTemplate mongoTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Cache<String, Boolean> negativeCache;
+
+    private final Counter rejections;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+
+    public ShortCodeFilter(final MongoTemplate mongoTemplate,
+                           final StringRedisTemplate stringRedisTemplate,
+                           final MeterRegistry meterRegistry,
+                           @Value("${app.short-code-filter.expected-insertions:1000000}") final long expectedInsertions,
+                           @Value("${app.short-code-filter.false-positive-rate:0.01}") final double falsePositiveRate,
+                           @Value("${app.short-code-filter.negative-cache.max-size:100000}") final long negativeMaxSize,
+                           @Value("${app.short-code-filter.negative-cache.ttl:30s}") final Duration negativeTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.negativeCache = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .build();
+
+        this.rejections = Counter.builder("short.code.filter.rejections")
+                .description("Lookups rejected by the short code filter without a database query")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("short.code.filter.false.positives")
+                .description("Lookups the filter let through that turned out not to exist")
+                .register(meterRegistry);
+        Gauge.builder("short.code.filter.expected.fpp", this, ShortCodeFilter::expectedFalsePositiveRate)
+                .description("False-positive probability derived from the filter fill ratio")
+                .register(meterRegistry);
+        Gauge.builder("short.code.filter.observed.fpp", this, ShortCodeFilter::observedFalsePositiveRate)
+                .description("Share of lookups for unknown codes that the filter failed to reject")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Without a filter every code is treated as possibly present, so redirects still work
+            log.error("Unable to build short code filter, unknown codes will hit the database", e);
+        }
+    }
+
+    // False only when the code definitely does not exist
+    public boolean mightExist(final String shortCode) {
+        var current = filter;
+        if ((current != null && !current.mightContain(shortCode)) || negativeCache.getIfPresent(shortCode) != null) {
+            rejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Called when a code passed the filter but was not found in the store
+    public void recordMissing(final String shortCode) {
+        if (filter != null) {
+            falsePositives.increment();
+        }
+        negativeCache.put(shortCode, Boolean.TRUE);
+    }
+
+    public void add(final String shortCode) {
+        addLocal(shortCode);
+        try {
+            stringRedisTemplate.convertAndSend(ADDITIONS_CHANNEL, shortCode);
+        } catch (RuntimeException e) {
+            log.warn("Unable to propagate short code {} to other nodes' filters", shortCode, e);
+        }
+    }
+
+    public void addLocal(final String shortCode) {
+        var current = filter;
+        if (current != null) {
+            current.add(shortCode);
+        }
+        var pending = rebuilding;
+        if (pending != null) {
+            pending.add(shortCode);
+        }
+        negativeCache.invalidate(shortCode);
+    }
+
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        addLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    // Codes inserted outside this app, or while the Redis broadcast was missed, become visible to the filter
+    @Override
+    public void onChange(final UrlMappingChange change) {
+        if (change.type() == UrlMappingChange.Type.INSERTED) {
+            addLocal(change.shortCode());
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        var mappingsCollection = mongoTemplate.getCollectionName(UrlMapping.class);
+        long existing = mongoTemplate.estimatedCount(mappingsCollection);
+
+        // Size for growth so the false-positive rate holds until the next rebuild
+        var next = new BloomFilter(Math.max(expectedInsertions, existing * 2), falsePositiveRate);
+        rebuilding = next;
+        try {
+            var query = new Query();
+            query.fields().include("shortCode").exclude("_id");
+            try (var codes = mongoTemplate.stream(query, Document.class, mappingsCollection)) {
+                codes.forEach(doc -> next.add(doc.getString("shortCode")));
+            }
+            filter = next;
+        } finally {
+            rebuilding = null;
+        }
+        negativeCache.invalidateAll();
+
+        log.info("Built short code filter with {} code(s) in {} ms, expected false-positive rate {}",
+                next.getInsertions(), Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                String.format("%.5f", next.expectedFalsePositiveRate()));
+    }
+
+    public Map<String, Object> stats() {
+        var current = filter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        if (current != null) {
+            stats.put("insertions", current.getInsertions());
+            stats.put("bits", current.getBitCount());
+            stats.put("hashFunctions", current.getHashCount());
+            stats.put("expectedFalsePositiveRate", current.expectedFalsePositiveRate());
+        }
+        stats.put("observedFalsePositiveRate", observedFalsePositiveRate());
+        stats.put("rejections", (long) rejections.count());
+        stats.put("falsePositives", (long) falsePositives.count());
+        return stats;
+    }
+
+    private double expectedFalsePositiveRate() {
+        var current = filter;
+        return current != null ? current.expectedFalsePositiveRate() : 0;
+    }
+
+    private double observedFalsePositiveRate() {
+        double missed = falsePositives.count();
+        double unknownLookups = missed + rejections.count();
+        return unknownLookups == 0 ? 0 : missed / unknownLookups;
+    }
+}
@@ -0,0 +1,82 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Space-Saving heavy-hitter summary (Metwally et al.): a fixed number of counters, any key with a true frequency
+// above total/capacity is guaranteed to be tracked, and count - error is a lower bound of its frequency
+public class SpaceSavingTopK {
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private final TreeSet<Entry> byCount = new TreeSet<>(
+            Comparator.comparingLong(Entry::count).thenComparing(Entry::key));
+
+    public SpaceSavingTopK(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void offer(final String key, final long increment) {
+        var current = entries.get(key);
+        Entry updated;
+        if (current != null) {
+            byCount.remove(current);
+            updated = new Entry(key, current.count() + increment, current.error());
+        } else if (entries.size() < capacity) {
+            updated = new Entry(key, increment, 0);
+        } else {
+            // Replace the smallest counter, its count becomes the overestimation bound of the newcomer
+            var evicted = byCount.pollFirst();
+            entries.remove(evicted.key());
+            updated = new Entry(key, evicted.count() + increment, evicted.count());
+        }
+        entries.put(key, updated);
+        byCount.add(updated);
+    }
+
+    public synchronized List<Entry> top(final int limit) {
+        List<Entry> top = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry : byCount.descendingSet()) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    // Halves every counter so the summary follows recent traffic instead of all-time totals
+    public synchronized void decay() {
+        List<Entry> decayed = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (entry.count() > 1) {
+                decayed.add(new Entry(entry.key(), entry.count() / 2, entry.error() / 2));
+            }
+        }
+        entries.clear();
+        byCount.clear();
+        for (Entry entry : decayed) {
+            entries.put(entry.key(), entry);
+            byCount.add(entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public record Entry(String key, long count, long error) {
+
+        public long guaranteedCount() {
+            return count - error;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.carloscavalcanti.urlshortner.service.change.UrlMappingChangeConsumer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Two-tier read-through cache for shortCode -> ResolvedUrl: bounded in-heap L1 in front of a shared Redis L2
+@Component
+@Slf4j
+public class UrlResolutionCache implements MessageListener, UrlMappingChangeConsumer {
+
+    public static final String INVALIDATION_CHANNEL = "url-resolution:invalidate";
+    public static final String KEY_PREFIX = "url-resolution:";
+    private static final Duration MIN_REMOTE_TTL = Duration.ofSeconds(1);
+
+    private final Cache<String, ResolvedUrl> localCache;
+    // Hot links pinned by HotLinkTracker, never evicted by size or TTL, only by invalidation or unpinning
+    private final Map<String, ResolvedUrl> pinned = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, ResolvedUrl> resolvedUrlRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration remoteTtl;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    // Latency of a whole read-through lookup, tagged by the tier that answered it
+    private final Timer localLookups;
+    private final Timer remoteLookups;
+    private final Timer databaseHitLookups;
+    private final Timer databaseMissLookups;
+
+    public UrlResolutionCache(final RedisTemplate<String, ResolvedUrl> resolvedUrlRedisTemplate,
+                              final StringRedisTemplate stringRedisTemplate,
+                              final MeterRegistry meterRegistry,
+                              @Value("${app.resolution-cache.local.max-size:100000}") final long localMaxSize,
+                              @Value("${app.resolution-cache.local.ttl:5m}") final Duration localTtl,
+                              @Value("${app.resolution-cache.remote.ttl:1h}") final Duration remoteTtl) {
+        this.resolvedUrlRedisTemplate = resolvedUrlRedisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.remoteTtl = remoteTtl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "url-resolution-local");
+        Gauge.builder("url.resolution.cache.pinned", pinned, Map::size)
+                .description("Hot links pinned in the local tier")
+                .register(meterRegistry);
+        this.localHits = requestCounter(meterRegistry, "local", "hit");
+        this.localMisses = requestCounter(meterRegistry, "local", "miss");
+        this.remoteHits = requestCounter(meterRegistry, "remote", "hit");
+        this.remoteMisses = requestCounter(meterRegistry, "remote", "miss");
+        this.localLookups = lookupTimer(meterRegistry, "local", "hit");
+        this.remoteLookups = lookupTimer(meterRegistry, "remote", "hit");
+        this.databaseHitLookups = lookupTimer(meterRegistry, "database", "hit");
+        this.databaseMissLookups = lookupTimer(meterRegistry, "database", "miss");
+    }
+
+    public Optional<ResolvedUrl> get(final String shortCode,
+                                     final Function<String, Optional<ResolvedUrl>> loader) {
+        long start = System.nanoTime();
+        var local = lookupLocal(shortCode);
+        if (local != null) {
+            localHits.increment();
+            record(localLookups, start);
+            return Optional.of(local);
+        }
+        localMisses.increment();
+
+        var remote = getRemote(shortCode);
+        if (remote != null) {
+            remoteHits.increment();
+            localCache.put(shortCode, remote);
+            record(remoteLookups, start);
+            return Optional.of(remote);
+        }
+        remoteMisses.increment();
+
+        var loaded = loader.apply(shortCode);
+        loaded.ifPresent(resolved -> put(shortCode, resolved));
+        record(loaded.isPresent() ? databaseHitLookups : databaseMissLookups, start);
+        return loaded;
+    }
+
+    // Local tier only, for callers that do their own non-blocking remote lookup
+    public ResolvedUrl getLocal(final String shortCode) {
+        var local = lookupLocal(shortCode);
+        (local != null ? localHits : localMisses).increment();
+        return local;
+    }
+
+    public void putLocal(final String shortCode, final ResolvedUrl resolvedUrl) {
+        localCache.put(shortCode, resolvedUrl);
+    }
+
+    public void pin(final String shortCode, final ResolvedUrl resolvedUrl) {
+        pinned.put(shortCode, resolvedUrl);
+    }
+
+    public void unpin(final String shortCode) {
+        pinned.remove(shortCode);
+    }
+
+    public boolean isPinned(final String shortCode) {
+        return pinned.containsKey(shortCode);
+    }
+
+    public Set<String> getPinnedShortCodes() {
+        return Set.copyOf(pinned.keySet());
+    }
+
+    public void recordRemoteLookup(final boolean hit) {
+        (hit ? remoteHits : remoteMisses).increment();
+    }
+
+    // Redis entries never outlive the link, so expired links drop out of the shared tier on their own
+    public Duration remoteTtlFor(final ResolvedUrl resolvedUrl) {
+        if (resolvedUrl.expiresAt() == null) {
+            return remoteTtl;
+        }
+        var untilExpiry = Duration.between(LocalDateTime.now(), resolvedUrl.expiresAt());
+        if (untilExpiry.compareTo(MIN_REMOTE_TTL) < 0) {
+            return MIN_REMOTE_TTL;
+        }
+        return untilExpiry.compareTo(remoteTtl) < 0 ? untilExpiry : remoteTtl;
+    }
+
+    public void put(final String shortCode, final ResolvedUrl resolvedUrl) {
+        localCache.put(shortCode, resolvedUrl);
+        try {
+            resolvedUrlRedisTemplate.opsForValue().set(KEY_PREFIX + shortCode, resolvedUrl, remoteTtlFor(resolvedUrl));
+        } catch (RuntimeException e) {
+            log.debug("Unable to write resolution cache entry for {} to Redis", shortCode, e);
+        }
+    }
+
+    // Drops the entry from Redis and tells every node (including this one) to drop its local copy
+    public void invalidate(final String shortCode) {
+        invalidateLocal(shortCode);
+        try {
+            resolvedUrlRedisTemplate.delete(KEY_PREFIX + shortCode);
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, shortCode);
+        } catch (RuntimeException e) {
+            log.warn("Unable to propagate resolution cache invalidation for {}", shortCode, e);
+        }
+    }
+
+    // A pinned entry is dropped too, HotLinkTracker re-pins the fresh mapping if the link is still hot
+    public void invalidateLocal(final String shortCode) {
+        pinned.remove(shortCode);
+        localCache.invalidate(shortCode);
+    }
+
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    // Every node sees every change, so each drops its own copy and the Redis delete is idempotent across nodes
+    @Override
+    public void onChange(final UrlMappingChange change) {
+        if (change.type() == UrlMappingChange.Type.INSERTED) {
+            return;
+        }
+        invalidateLocal(change.shortCode());
+        try {
+            resolvedUrlRedisTemplate.delete(KEY_PREFIX + change.shortCode());
+        } catch (RuntimeException e) {
+            log.debug("Unable to drop resolution cache entry for {} from Redis", change.shortCode(), e);
+        }
+    }
+
+    private ResolvedUrl lookupLocal(final String shortCode) {
+        var hot = pinned.get(shortCode);
+        return hot != null ? hot : localCache.getIfPresent(shortCode);
+    }
+
+    private ResolvedUrl getRemote(final String shortCode) {
+        try {
+            return resolvedUrlRedisTemplate.opsForValue().get(KEY_PREFIX + shortCode);
+        } catch (RuntimeException e) {
+            // Redis is an optimisation only, fall through to the database when it is unavailable
+            log.debug("Unable to read resolution cache entry for {} from Redis", shortCode, e);
+            return null;
+        }
+    }
+
+    private static void record(final Timer timer, final long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer lookupTimer(final MeterRegistry meterRegistry, final String tier, final String result) {
+        return Timer.builder("url.resolution.lookup")
+                .description("Short code resolution latency by the tier that answered")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(final MeterRegistry meterRegistry, final String tier, final String result) {
+        return Counter.builder("url.resolution.cache.requests")
+                .description("Short code resolution cache lookups")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,8 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+public enum WarmupSource {
+    // Most clicked codes in the recent hourly rollups
+    RECENT,
+    // Highest all-time clickCount
+    TOP
+}
@@ -0,0 +1,17 @@
+package com.carloscavalcanti.urlshortner.service.change;
+
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+
+import java.time.Instant;
+
+// Local structure kept in sync with url_mappings by the change feed; every registered consumer receives every change.
+// Delivery is at-least-once and may repeat recent changes after a restart or fallback, so handling must be idempotent.
+public interface UrlMappingChangeConsumer {
+
+    void onChange(UrlMappingChange change);
+
+    // Earliest change this consumer needs replayed on startup, null when changes from now on are enough
+    default Instant replayFrom() {
+        return null;
+    }
+}
@@ -0,0 +1,403 @@
+package com.carloscavalcanti.urlshortner.service.change;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest.ChangeStreamRequestOptions;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Tails url_mappings and fans every insert, update, deactivation and delete out to the registered consumers, so
+// caches, filters and the redirect store converge on every node, including after changes made outside the app.
+// Follows the change stream when the deployment has one (replica set or sharded cluster), resuming from a
+// checkpointed resume token, and falls back to polling updatedAt otherwise. Polling cannot observe deletes, the
+// expiry sweeper deactivates mappings before deleting them so polling nodes still drop them.
+@Component
+@ConditionalOnProperty(name = "app.mapping-changes.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class UrlMappingChangeFeed {
+
+    enum Mode {
+        CHANGE_STREAM,
+        POLLING
+    }
+
+    private static final String COLLECTION = "url_mappings";
+    // Fields that matter to consumers; updates touching only counters (clickCount) are filtered out server-side
+    private static final List<String> TRACKED_FIELDS =
+            List.of("originalUrl", "active", "expiresAt", "redirectType", "updatedAt");
+    // Not a replica set, resume point no longer in the oplog, or the stream was invalidated for good
+    private static final Set<Integer> FATAL_STREAM_ERRORS = Set.of(40573, 286, 280);
+    private static final int MAX_STREAM_FAILURES = 3;
+    private static final Duration STREAM_STARTUP_GRACE = Duration.ofSeconds(10);
+
+    private final MongoTemplate mongoTemplate;
+    private final List<UrlMappingChangeConsumer> consumers;
+    private final boolean changeStreamEnabled;
+    private final Path checkpointPath;
+    private final Duration pollOverlap;
+    private final int pollBatchSize;
+    private final Counter streamedChanges;
+    private final Counter polledChanges;
+
+    private volatile Mode mode;
+    private MessageListenerContainer container;
+    private Subscription subscription;
+    private long streamStartedAt;
+    private volatile Throwable streamError;
+    private volatile int streamFailures;
+
+    private volatile BsonDocument resumeToken;
+    private volatile Instant lastChangeAt;
+    private volatile boolean checkpointDirty;
+
+    // Polling state, only touched by the scheduled tick
+    private LocalDateTime pollFrom;
+    private final Map<String, LocalDateTime> recentlyPolled = new HashMap<>();
+
+    public UrlMappingChangeFeed(final MongoTemplate mongoTemplate,
+                                final List<UrlMappingChangeConsumer> consumers,
+                                final MeterRegistry meterRegistry,
+                                @Value("${app.mapping-changes.change-stream:true}") final boolean changeStreamEnabled,
+                                @Value("${app.mapping-changes.checkpoint-path:data/url-mappings.checkpoint}")
+                                final Path checkpointPath,
+                                @Value("${app.mapping-changes.poll-overlap:5s}") final Duration pollOverlap,
+                                @Value("${app.mapping-changes.poll-batch-size:500}") final int pollBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.consumers = List.copyOf(consumers);
+        this.changeStreamEnabled = changeStreamEnabled;
+        this.checkpointPath = checkpointPath;
+        this.pollOverlap = pollOverlap;
+        this.pollBatchSize = pollBatchSize;
+        this.streamedChanges = changeCounter(meterRegistry, "change_stream");
+        this.polledChanges = changeCounter(meterRegistry, "polling");
+    }
+
+    @PostConstruct
+    public void start() {
+        var checkpoint = readCheckpoint();
+        var replayFrom = consumers.stream()
+                .map(UrlMappingChangeConsumer::replayFrom)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+
+        // A checkpoint newer than what a consumer needs would skip changes it relies on
+        if (checkpoint != null && (replayFrom == null || !checkpoint.changedAt().isAfter(replayFrom))) {
+            resumeToken = checkpoint.resumeToken();
+            lastChangeAt = checkpoint.changedAt();
+        } else {
+            lastChangeAt = replayFrom;
+        }
+
+        if (changeStreamEnabled) {
+            enablePreImages();
+            startChangeStream();
+        } else {
+            startPolling();
+        }
+        log.info("Following {} changes for {} consumer(s) by {} from {}", COLLECTION, consumers.size(),
+                mode == Mode.CHANGE_STREAM ? "change stream" : "polling", lastChangeAt != null ? lastChangeAt : "now");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+        checkpoint();
+    }
+
+    @Scheduled(fixedDelayString = "${app.mapping-changes.poll-interval:1s}")
+    public void tick() {
+        if (mode == Mode.CHANGE_STREAM) {
+            checkChangeStream();
+        }
+        if (mode == Mode.POLLING) {
+            poll();
+        }
+        checkpoint();
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    private void startChangeStream() {
+        var options = ChangeStreamOptions.builder()
+                .filter(trackedChanges())
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE);
+        if (resumeToken != null) {
+            options.resumeAfter(resumeToken);
+        } else if (lastChangeAt != null) {
+            options.resumeAt(lastChangeAt);
+        }
+
+        mode = Mode.CHANGE_STREAM;
+        streamError = null;
+        streamStartedAt = System.nanoTime();
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        var request = new ChangeStreamRequest<UrlMapping>(this::onStreamEvent,
+                new ChangeStreamRequestOptions(null, COLLECTION, options.build()));
+        subscription = container.register(request, UrlMapping.class, this::onStreamError);
+        container.start();
+    }
+
+    private void checkChangeStream() {
+        var error = streamError;
+        boolean starting = System.nanoTime() - streamStartedAt < STREAM_STARTUP_GRACE.toNanos();
+        if (error == null && (subscription.isActive() || starting)) {
+            return;
+        }
+
+        container.stop();
+        if (isFatal(error) || ++streamFailures >= MAX_STREAM_FAILURES) {
+            log.warn("Change stream on {} unavailable, polling updatedAt for changes instead", COLLECTION);
+            startPolling();
+        } else {
+            log.info("Restarting change stream on {} ({} consecutive failure(s))", COLLECTION, streamFailures);
+            startChangeStream();
+        }
+    }
+
+    void onStreamEvent(final Message<ChangeStreamDocument<Document>, UrlMapping> message) {
+        var event = message.getRaw();
+        if (event == null || event.getOperationType() == null) {
+            return;
+        }
+        var changedAt = event.getClusterTime() != null
+                ? Instant.ofEpochSecond(event.getClusterTime().getTime())
+                : Instant.now();
+
+        var change = toChange(event, message.getBody(), changedAt);
+        if (change != null) {
+            publish(change, streamedChanges);
+        }
+        resumeToken = event.getResumeToken();
+        lastChangeAt = changedAt;
+        checkpointDirty = true;
+        streamFailures = 0;
+    }
+
+    private void onStreamError(final Throwable e) {
+        streamError = e;
+        log.warn("Change stream on {} failed", COLLECTION, e);
+    }
+
+    private static UrlMappingChange toChange(final ChangeStreamDocument<Document> event, final UrlMapping mapping,
+                                             final Instant changedAt) {
+        return switch (event.getOperationType()) {
+            // The looked-up document is null when it was deleted in the meantime, its delete event follows
+            case INSERT, UPDATE, REPLACE -> mapping == null || mapping.getShortCode() == null ? null
+                    : new UrlMappingChange(event.getOperationType() == OperationType.INSERT
+                            ? UrlMappingChange.Type.INSERTED : UrlMappingChange.Type.UPDATED,
+                    mapping.getShortCode(), ResolvedUrl.from(mapping), changedAt);
+            case DELETE -> {
+                var shortCode = deletedShortCode(event.getDocumentKey(), event.getFullDocumentBeforeChange());
+                if (shortCode == null) {
+                    log.warn("Unable to resolve the short code of deleted {} document {}", COLLECTION,
+                            event.getDocumentKey());
+                    yield null;
+                }
+                yield new UrlMappingChange(UrlMappingChange.Type.DELETED, shortCode, null, changedAt);
+            }
+            default -> null;
+        };
+    }
+
+    // Mappings keyed by their short code resolve from the document key alone; older ones, keyed by an ObjectId,
+    // need the pre-image
+    private static String deletedShortCode(final BsonDocument documentKey, final Document before) {
+        if (before != null && before.getString("shortCode") != null) {
+            return before.getString("shortCode");
+        }
+        var id = documentKey != null ? documentKey.get("_id") : null;
+        return id != null && id.isString() ? id.asString().getValue() : null;
+    }
+
+    // Needs MongoDB 6.0 and the collMod privilege; without it deletes of ObjectId-keyed mappings are not propagated
+    private void enablePreImages() {
+        try {
+            mongoTemplate.executeCommand(new Document("collMod", COLLECTION)
+                    .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to enable change stream pre-images on {}", COLLECTION, e);
+        }
+    }
+
+    private void startPolling() {
+        mode = Mode.POLLING;
+        // The token may be what failed; changes since lastChangeAt are caught up by timestamp instead
+        resumeToken = null;
+        pollFrom = lastChangeAt != null
+                ? LocalDateTime.ofInstant(lastChangeAt, ZoneId.systemDefault())
+                : LocalDateTime.now();
+    }
+
+    // Re-reads an overlap window so writers with a lagging clock are not missed, without redelivering what was seen
+    void poll() {
+        try {
+            var since = pollFrom.minus(pollOverlap);
+            recentlyPolled.values().removeIf(updatedAt -> !updatedAt.isAfter(since));
+
+            List<UrlMapping> mappings;
+            LocalDateTime batchFrom;
+            do {
+                batchFrom = since;
+                var query = Query.query(Criteria.where("updatedAt").gt(since))
+                        .with(Sort.by("updatedAt"))
+                        .limit(pollBatchSize);
+                query.fields().include("shortCode", "originalUrl", "expiresAt", "redirectType", "active",
+                        "createdAt", "updatedAt");
+                mappings = mongoTemplate.find(query, UrlMapping.class);
+
+                for (UrlMapping mapping : mappings) {
+                    var updatedAt = mapping.getUpdatedAt();
+                    since = updatedAt;
+                    if (updatedAt.equals(recentlyPolled.put(mapping.getShortCode(), updatedAt))) {
+                        continue;
+                    }
+                    var type = updatedAt.equals(mapping.getCreatedAt())
+                            ? UrlMappingChange.Type.INSERTED : UrlMappingChange.Type.UPDATED;
+                    var changedAt = updatedAt.atZone(ZoneId.systemDefault()).toInstant();
+                    publish(new UrlMappingChange(type, mapping.getShortCode(), ResolvedUrl.from(mapping), changedAt),
+                            polledChanges);
+
+                    if (updatedAt.isAfter(pollFrom)) {
+                        pollFrom = updatedAt;
+                        lastChangeAt = changedAt;
+                        checkpointDirty = true;
+                    }
+                }
+            } while (mappings.size() == pollBatchSize && since.isAfter(batchFrom));
+        } catch (RuntimeException e) {
+            log.warn("Failed to poll {} for changes", COLLECTION, e);
+        }
+    }
+
+    private void publish(final UrlMappingChange change, final Counter counter) {
+        counter.increment();
+        for (UrlMappingChangeConsumer consumer : consumers) {
+            try {
+                consumer.onChange(change);
+            } catch (RuntimeException e) {
+                log.warn("{} failed to apply change to {}", ClassUtils.getUserClass(consumer).getSimpleName(),
+                        change.shortCode(), e);
+            }
+        }
+    }
+
+    private void checkpoint() {
+        var changedAt = lastChangeAt;
+        if (!checkpointDirty || changedAt == null) {
+            return;
+        }
+        checkpointDirty = false;
+
+        var checkpoint = new BsonDocument("changedAt", new BsonDateTime(changedAt.toEpochMilli()));
+        var token = resumeToken;
+        if (token != null) {
+            checkpoint.put("resumeToken", token);
+        }
+        try {
+            var parent = checkpointPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            var temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            Files.writeString(temporary, checkpoint.toJson());
+            Files.move(temporary, checkpointPath, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            checkpointDirty = true;
+            log.warn("Unable to write change feed checkpoint {}", checkpointPath, e);
+        }
+    }
+
+    private Checkpoint readCheckpoint() {
+        try {
+            if (!Files.exists(checkpointPath)) {
+                return null;
+            }
+            var checkpoint = BsonDocument.parse(Files.readString(checkpointPath));
+            var token = checkpoint.containsKey("resumeToken") ? checkpoint.getDocument("resumeToken") : null;
+            return new Checkpoint(token, Instant.ofEpochMilli(checkpoint.getDateTime("changedAt").getValue()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable change feed checkpoint {}", checkpointPath, e);
+            return null;
+        }
+    }
+
+    private static Document trackedChanges() {
+        var conditions = new ArrayList<Document>();
+        conditions.add(new Document("operationType", new Document("$in", List.of("insert", "replace", "delete"))));
+        for (String field : TRACKED_FIELDS) {
+            conditions.add(new Document("updateDescription.updatedFields." + field, new Document("$exists", true)));
+        }
+        conditions.add(new Document("updateDescription.removedFields", new Document("$in", TRACKED_FIELDS)));
+        return new Document("$match", new Document("$or", conditions));
+    }
+
+    private static boolean isFatal(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException
+                    && FATAL_STREAM_ERRORS.contains(mongoException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter changeCounter(final MeterRegistry meterRegistry, final String source) {
+        return Counter.builder("url.mapping.changes")
+                .description("url_mappings changes delivered to local consumers")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private record Checkpoint(BsonDocument resumeToken, Instant changedAt) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+public enum BackPressurePolicy {
+
+    // Discard the click immediately when the queue is full
+    DROP,
+
+    // Wait up to the configured block timeout for free space, then discard
+    BLOCK
+}
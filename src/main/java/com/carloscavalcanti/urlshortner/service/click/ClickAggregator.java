@@ -0,0 +1,188 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Coalesces clicks per short code in front of the count sinks. A redirect only bumps a LongAdder, whose cells spread
+// concurrent increments on a hot link across cores instead of contending on one counter. Each flush swaps every cell
+// out with sumThenReset and hands the sinks one delta per code, so their cost follows distinct links, not click volume.
+@Component
+@Slf4j
+public class ClickAggregator {
+
+    private static final int EVICT_AFTER_IDLE_FLUSHES = 60;
+
+    private final List<SinkState> sinks;
+    private final DistributionSummary flushedCodes;
+    private final int maxCarryOver;
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    // Only touched by the flush, which is serialized
+    private final Map<String, Integer> idleFlushes = new HashMap<>();
+    private Map<String, LongAdder> evicted = Map.of();
+
+    public ClickAggregator(final List<ClickCountSink> sinks,
+                           final MeterRegistry meterRegistry,
+                           @Value("${app.clicks.aggregator.max-carry-over:100000}") final int maxCarryOver) {
+        this.sinks = sinks.stream()
+                .map(sink -> new SinkState(sink,
+                        persistTimer(meterRegistry, sink, "success"),
+                        persistTimer(meterRegistry, sink, "failure"),
+                        Counter.builder("clicks.aggregator.dropped")
+                                .description("Clicks whose count delta was given up after a sink kept failing")
+                                .tag("sink", sinkName(sink))
+                                .register(meterRegistry)))
+                .toList();
+        this.flushedCodes = DistributionSummary.builder("clicks.aggregator.codes")
+                .description("Distinct short codes per aggregated flush")
+                .register(meterRegistry);
+        this.maxCarryOver = maxCarryOver;
+    }
+
+    public void record(final String shortCode) {
+        var adder = counters.get(shortCode);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(shortCode, code -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.clicks.aggregator.flush-interval:1s}")
+    public synchronized void flush() {
+        Map<String, Long> countsByCode = new HashMap<>();
+        // A redirect that fetched a counter just before its eviction increments it afterwards, so drain those once more
+        evicted.forEach((shortCode, adder) -> merge(countsByCode, shortCode, adder.sumThenReset()));
+
+        Map<String, LongAdder> evicting = new HashMap<>();
+        counters.forEach((shortCode, adder) -> {
+            // sumThenReset takes each cell with getAndSet, so increments landing mid-drain stay for the next flush
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                merge(countsByCode, shortCode, count);
+                idleFlushes.remove(shortCode);
+            } else if (idleFlushes.merge(shortCode, 1, Integer::sum) >= EVICT_AFTER_IDLE_FLUSHES) {
+                // Keeps the map at the working set of links instead of every code ever clicked
+                counters.remove(shortCode, adder);
+                idleFlushes.remove(shortCode);
+                evicting.put(shortCode, adder);
+            }
+        });
+        evicted = evicting;
+        if (!countsByCode.isEmpty()) {
+            flushedCodes.record(countsByCode.size());
+        }
+
+        for (SinkState state : sinks) {
+            // Deltas a sink failed to take last time are retried with this flush, merged so each code is written once
+            var deltas = countsByCode;
+            if (!state.carryOver.isEmpty()) {
+                Map<String, Long> merged = new HashMap<>(state.carryOver);
+                countsByCode.forEach((shortCode, count) -> merge(merged, shortCode, count));
+                deltas = merged;
+                state.carryOver = Map.of();
+            }
+            if (deltas.isEmpty()) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                state.sink.write(deltas);
+                state.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                state.failure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.error("Failed to persist click counts of {} short code(s) via {}, retrying next flush",
+                        deltas.size(), sinkName(state.sink), e);
+                carryOver(state, deltas);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void flushOnShutdown() {
+        flush();
+        for (SinkState state : sinks) {
+            if (!state.carryOver.isEmpty()) {
+                log.error("Dropping click counts of {} short code(s) for {} on shutdown", state.carryOver.size(),
+                        sinkName(state.sink));
+                drop(state, state.carryOver);
+                state.carryOver = Map.of();
+            }
+        }
+    }
+
+    int trackedCodes() {
+        return counters.size();
+    }
+
+    // Bounded so a sink that stays down cannot grow the map without limit; what does not fit is counted as dropped
+    private void carryOver(final SinkState state, final Map<String, Long> deltas) {
+        if (deltas.size() <= maxCarryOver) {
+            state.carryOver = new HashMap<>(deltas);
+            return;
+        }
+
+        Map<String, Long> kept = new HashMap<>();
+        Map<String, Long> dropped = new HashMap<>();
+        deltas.forEach((shortCode, count) -> (kept.size() < maxCarryOver ? kept : dropped).put(shortCode, count));
+        state.carryOver = kept;
+        log.error("Dropping click counts of {} short code(s) for {}, the carry-over is full", dropped.size(),
+                sinkName(state.sink));
+        drop(state, dropped);
+    }
+
+    private static void drop(final SinkState state, final Map<String, Long> deltas) {
+        state.dropped.increment(deltas.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private static void merge(final Map<String, Long> countsByCode, final String shortCode, final long count) {
+        if (count > 0) {
+            countsByCode.merge(shortCode, count, Long::sum);
+        }
+    }
+
+    private static Timer persistTimer(final MeterRegistry meterRegistry, final ClickCountSink sink,
+                                      final String outcome) {
+        return Timer.builder("clicks.persist")
+                .description("Time to write one batch of clicks to a sink")
+                .tag("sink", sinkName(sink))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String sinkName(final ClickCountSink sink) {
+        return ClassUtils.getUserClass(sink).getSimpleName();
+    }
+
+    // carryOver is only touched by the flush, which is serialized
+    private static final class SinkState {
+
+        private final ClickCountSink sink;
+        private final Timer success;
+        private final Timer failure;
+        private final Counter dropped;
+        private Map<String, Long> carryOver = Map.of();
+
+        SinkState(final ClickCountSink sink, final Timer success, final Timer failure, final Counter dropped) {
+            this.sink = sink;
+            this.success = success;
+            this.failure = failure;
+            this.dropped = dropped;
+        }
+    }
+}
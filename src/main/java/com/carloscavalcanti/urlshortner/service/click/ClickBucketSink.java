@@ -0,0 +1,99 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClickBucketSink implements ClickEventSink {
+
+    // About 60 bytes per BSON entry, so a full document stays well under 1 MB
+    static final int MAX_ENTRIES_PER_DOCUMENT = 10_000;
+    static final String LEGACY_UNIQUE_INDEX = "short_code_bucket_idx";
+
+    private final MongoTemplate mongoTemplate;
+    private final UserAgentDictionary userAgentDictionary;
+
+    // Buckets used to be unique per hour, which would reject the overflow documents of a full hour
+    @PostConstruct
+    public void dropLegacyUniqueIndex() {
+        try {
+            var indexOps = mongoTemplate.indexOps(ClickBucket.class);
+            if (indexOps.getIndexInfo().stream().anyMatch(index -> LEGACY_UNIQUE_INDEX.equals(index.getName()))) {
+                indexOps.dropIndex(LEGACY_UNIQUE_INDEX);
+                log.info("Dropped legacy unique click bucket index {}", LEGACY_UNIQUE_INDEX);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to drop legacy unique click bucket index {}", LEGACY_UNIQUE_INDEX, e);
+        }
+    }
+
+    @Override
+    public void write(final List<ClickEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        var userAgentIds = userAgentDictionary.internAll(batch.stream().map(ClickEvent::userAgent).toList());
+
+        Map<BucketKey, List<ClickBucketEntry>> entriesByBucket = new LinkedHashMap<>();
+        for (ClickEvent event : batch) {
+            var entry = new ClickBucketEntry(event.epochMillis(),
+                    userAgentIds.getOrDefault(event.userAgent(), UserAgentDictionary.NONE),
+                    IpAddressCodec.pack(event.ipAddress()));
+            entriesByBucket.computeIfAbsent(BucketKey.of(event.shortCode(), event.timestamp()), k -> new ArrayList<>())
+                    .add(entry);
+        }
+
+        upsertBuckets(mongoTemplate, entriesByBucket);
+    }
+
+    static void upsertBuckets(final MongoTemplate mongoTemplate,
+                              final Map<BucketKey, List<ClickBucketEntry>> entriesByBucket) {
+        if (entriesByBucket.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickBucket.class);
+        entriesByBucket.forEach((key, entries) -> {
+            for (int from = 0; from < entries.size(); from += MAX_ENTRIES_PER_DOCUMENT) {
+                var chunk = entries.subList(from, Math.min(from + MAX_ENTRIES_PER_DOCUMENT, entries.size()));
+                // Only matches a document with room for the whole chunk, otherwise the upsert starts a new one
+                bulkOps.upsert(
+                        Query.query(Criteria.where("shortCode").is(key.shortCode())
+                                .and("bucketStart").is(key.bucketStart())
+                                .and("count").lte(MAX_ENTRIES_PER_DOCUMENT - chunk.size())),
+                        new Update()
+                                .inc("count", chunk.size())
+                                .push("clicks").each(chunk.toArray()));
+            }
+        });
+
+        bulkOps.execute();
+    }
+
+    record BucketKey(String shortCode, LocalDateTime bucketStart) {
+
+        static BucketKey of(final String shortCode, final LocalDateTime timestamp) {
+            return new BucketKey(shortCode, timestamp.truncatedTo(ChronoUnit.HOURS));
+        }
+    }
+}
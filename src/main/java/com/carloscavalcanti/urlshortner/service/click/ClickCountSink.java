@@ -0,0 +1,10 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import java.util.Map;
+
+// Destination for aggregated click counts, one delta per short code per aggregation interval; every registered
+// sink receives every delta map
+public interface ClickCountSink {
+
+    void write(Map<String, Long> countsByCode);
+}
@@ -0,0 +1,11 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+
+import java.util.List;
+
+// Destination for drained click batches; every registered sink receives every batch
+public interface ClickEventSink {
+
+    void write(List<ClickEvent> batch);
+}
@@ -0,0 +1,538 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Local write-ahead log for clicks. Redirects append encoded clicks to an in-memory group, which a committer thread
+// writes to the active segment (and forces to disk when fsync is on) every commit interval. The click worker reads
+// committed clicks back and acknowledges them once every sink stored them; segments entirely below the acknowledged
+// offset are deleted, anything above it is replayed after a restart. Offsets are global byte positions and each
+// segment file is named after the offset of its first record.
+@Component
+@Slf4j
+public class ClickLog {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+    // Payload length and CRC32C of the payload
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 1 << 16;
+    private static final int READ_BUFFER_SIZE = 1 << 18;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentSize;
+    private final Duration commitInterval;
+    private final boolean fsync;
+    private final Timer commitTimer;
+
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition groupSwapped = appendLock.newCondition();
+    private final Object commitLock = new Object();
+    private final Object committedSignal = new Object();
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+
+    // Owned by whoever holds the commit lock
+    private FileChannel activeChannel;
+    private long activeBase;
+    // Owned by the single reader, the click log worker
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private FileChannel readChannel;
+    private long readBase = -1;
+
+    private volatile long committedOffset;
+    private volatile long acknowledgedOffset;
+    private volatile boolean open;
+    private Thread committer;
+
+    public ClickLog(final MeterRegistry meterRegistry,
+                    @Value("${app.clicks.log.enabled:false}") final boolean enabled,
+                    @Value("${app.clicks.log.directory:data/click-log}") final Path directory,
+                    @Value("${app.clicks.log.segment-size:64MB}") final DataSize segmentSize,
+                    @Value("${app.clicks.log.buffer-size:1MB}") final DataSize bufferSize,
+                    @Value("${app.clicks.log.commit-interval:10ms}") final Duration commitInterval,
+                    @Value("${app.clicks.log.fsync:true}") final boolean fsync) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize.toBytes();
+        this.commitInterval = commitInterval;
+        this.fsync = fsync;
+        if (enabled) {
+            this.pending = ByteBuffer.allocate((int) bufferSize.toBytes());
+            this.spare = ByteBuffer.allocate((int) bufferSize.toBytes());
+        }
+
+        this.commitTimer = Timer.builder("clicks.log.commit")
+                .description("Time to write, and force when fsync is on, one group of logged clicks")
+                .register(meterRegistry);
+        Gauge.builder("clicks.log.backlog", this, clickLog -> clickLog.committedOffset - clickLog.acknowledgedOffset)
+                .description("Committed click log bytes not yet acknowledged by the sinks")
+                .register(meterRegistry);
+        Gauge.builder("clicks.log.segments", segments, ConcurrentSkipListMap::size)
+                .description("Click log segment files on disk")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        try (var files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(file -> segments.put(baseOffset(file), file));
+        }
+        long checkpoint = readCheckpoint();
+
+        if (segments.isEmpty()) {
+            activeBase = checkpoint;
+            segments.put(activeBase, segmentPath(activeBase));
+            activeChannel = FileChannel.open(segmentPath(activeBase), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+        } else {
+            // Only the active segment can end in a record torn by a crash, sealed ones were fully written
+            activeBase = segments.lastKey();
+            activeChannel = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long validLength = scan(activeChannel, 0, activeChannel.size(), Integer.MAX_VALUE, null);
+            if (validLength < activeChannel.size()) {
+                log.warn("Truncating {} byte(s) of torn click log tail in {}", activeChannel.size() - validLength,
+                        segments.lastEntry().getValue());
+                activeChannel.truncate(validLength);
+            }
+            activeChannel.position(validLength);
+        }
+        committedOffset = activeBase + activeChannel.position();
+        acknowledgedOffset = Math.max(segments.firstKey(), Math.min(checkpoint, committedOffset));
+        if (acknowledgedOffset != checkpoint) {
+            log.warn("Click log checkpoint {} is outside the segments on disk, resuming from {}", checkpoint,
+                    acknowledgedOffset);
+        }
+
+        open = true;
+        committer = Thread.ofPlatform().name("click-log-committer").daemon(true).start(this::runCommitter);
+        log.info("Click log {} opened with {} unacknowledged byte(s) in {} segment(s), commit interval {}, fsync {}",
+                directory, committedOffset - acknowledgedOffset, segments.size(), commitInterval, fsync);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+
+        open = false;
+        LockSupport.unpark(committer);
+        try {
+            committer.join(commitInterval.toMillis() + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (commitLock) {
+            commit();
+            activeChannel.close();
+        }
+        if (readChannel != null) {
+            readChannel.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean append(final ClickEvent event) {
+        return append(event, 0);
+    }
+
+    // Waits up to the timeout for the committer to take the pending group when it is full. Returns false when the
+    // click cannot be logged because the group stayed full or the click is oversized.
+    public boolean append(final ClickEvent event, final long timeoutNanos) {
+        var record = encode(event);
+        if (record.length > MAX_RECORD_SIZE) {
+            log.debug("Not logging oversized click for {} ({} bytes)", event.shortCode(), record.length);
+            return false;
+        }
+
+        boolean filling;
+        appendLock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (pending.remaining() < record.length) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                // Commit early rather than leaving the caller waiting out the commit interval
+                LockSupport.unpark(committer);
+                remaining = groupSwapped.awaitNanos(remaining);
+            }
+            pending.put(record);
+            filling = pending.position() > pending.capacity() / 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            appendLock.unlock();
+        }
+        if (filling) {
+            LockSupport.unpark(committer);
+        }
+        return true;
+    }
+
+    // Writes the clicks appended since the last commit as one group
+    public void commit() {
+        synchronized (commitLock) {
+            ByteBuffer group;
+            appendLock.lock();
+            try {
+                group = pending;
+                pending = spare;
+                spare = group;
+                groupSwapped.signalAll();
+            } finally {
+                appendLock.unlock();
+            }
+
+            group.flip();
+            if (!group.hasRemaining()) {
+                group.clear();
+                return;
+            }
+
+            long start = System.nanoTime();
+            int length = group.remaining();
+            try {
+                while (group.hasRemaining()) {
+                    activeChannel.write(group);
+                }
+                if (fsync) {
+                    activeChannel.force(false);
+                }
+                committedOffset += length;
+                commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                synchronized (committedSignal) {
+                    committedSignal.notifyAll();
+                }
+                if (activeChannel.position() >= segmentSize) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                log.error("Failed to commit {} byte(s) of clicks to the click log", length, e);
+                rewind();
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    // Waits until clicks past the given offset are committed or the timeout elapses
+    public void awaitCommitted(final long offset, final long timeoutNanos) throws InterruptedException {
+        if (committedOffset > offset || timeoutNanos <= 0) {
+            return;
+        }
+        synchronized (committedSignal) {
+            if (committedOffset <= offset) {
+                TimeUnit.NANOSECONDS.timedWait(committedSignal, timeoutNanos);
+            }
+        }
+    }
+
+    // Adds up to maxEvents committed clicks from the given offset to the batch and returns the offset after them
+    public long read(final long from, final int maxEvents, final List<ClickEvent> batch) throws IOException {
+        long position = from;
+        long limit = committedOffset;
+        int wanted = batch.size() + maxEvents;
+        while (position < limit && batch.size() < wanted) {
+            var segment = segments.floorEntry(position);
+            var next = segments.higherKey(position);
+            long segmentEnd = next != null ? Math.min(next, limit) : limit;
+            long end = segment.getKey() + scan(readChannel(segment.getKey(), segment.getValue()),
+                    position - segment.getKey(), segmentEnd - segment.getKey(), wanted - batch.size(), batch);
+            if (end == position) {
+                // Committed bytes that do not parse, nothing after them in this segment can be trusted either
+                log.error("Skipping {} unreadable byte(s) of click log segment {}", segmentEnd - position,
+                        segment.getValue());
+                end = segmentEnd;
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    // Copies the committed records in [from, to) into a dead-letter segment outside the replayed log, in the same
+    // record format, so a batch the sinks keep rejecting can be acknowledged without being lost
+    public Path deadLetter(final long from, final long to) throws IOException {
+        var deadLetters = directory.resolve(DEAD_LETTER_DIRECTORY);
+        Files.createDirectories(deadLetters);
+        var path = deadLetters.resolve(String.format("%020d%s", from, SEGMENT_SUFFIX));
+        try (var target = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = from;
+            while (position < to) {
+                var segment = segments.floorEntry(position);
+                var next = segments.higherKey(position);
+                long segmentEnd = next != null ? Math.min(next, to) : to;
+                try (var source = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                    long offset = position - segment.getKey();
+                    long end = segmentEnd - segment.getKey();
+                    while (offset < end) {
+                        long copied = source.transferTo(offset, end - offset, target);
+                        if (copied <= 0) {
+                            throw new IOException("Click log segment " + segment.getValue() + " ends before "
+                                    + (segment.getKey() + end));
+                        }
+                        offset += copied;
+                    }
+                }
+                position = segmentEnd;
+            }
+            if (fsync) {
+                target.force(false);
+            }
+        }
+        return path;
+    }
+
+    // Everything below the offset has been stored by the sinks and is never replayed
+    public void acknowledge(final long offset) {
+        if (offset <= acknowledgedOffset) {
+            return;
+        }
+
+        acknowledgedOffset = offset;
+        try {
+            var checkpoint = directory.resolve(CHECKPOINT_FILE);
+            var temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(temporary, Long.toString(offset));
+            Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Only means more clicks are replayed after a restart
+            log.warn("Failed to write click log checkpoint {}", offset, e);
+        }
+
+        // Every segment but the last is sealed, drop the ones lying entirely below the acknowledged offset
+        Long base = segments.firstKey();
+        Long next;
+        while ((next = segments.higherKey(base)) != null && next <= offset) {
+            var path = segments.remove(base);
+            try {
+                if (readBase == base) {
+                    readChannel.close();
+                    readChannel = null;
+                    readBase = -1;
+                }
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete acknowledged click log segment {}", path, e);
+            }
+            base = next;
+        }
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public long getAcknowledgedOffset() {
+        return acknowledgedOffset;
+    }
+
+    private void runCommitter() {
+        long intervalNanos = commitInterval.toNanos();
+        while (open) {
+            LockSupport.parkNanos(intervalNanos);
+            commit();
+        }
+    }
+
+    // The new segment is opened first, so a failed rotation keeps appending to the current one and retries later
+    private void rotate() throws IOException {
+        long base = committedOffset;
+        var path = segmentPath(base);
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        activeChannel.close();
+        activeChannel = channel;
+        activeBase = base;
+        segments.put(base, path);
+    }
+
+    // Cuts off whatever part of a failed group reached the segment, so the next group starts on a record boundary
+    private void rewind() {
+        try {
+            activeChannel.truncate(committedOffset - activeBase);
+            activeChannel.position(committedOffset - activeBase);
+        } catch (IOException e) {
+            log.error("Failed to rewind click log segment {}", segmentPath(activeBase), e);
+        }
+    }
+
+    private FileChannel readChannel(final long base, final Path path) throws IOException {
+        if (readBase != base) {
+            if (readChannel != null) {
+                readChannel.close();
+            }
+            readChannel = FileChannel.open(path, StandardOpenOption.READ);
+            readBase = base;
+        }
+        return readChannel;
+    }
+
+    // Parses records from position up to limit within one segment, decoding them into the batch when one is given.
+    // Returns the position after the last complete, intact record.
+    private long scan(final FileChannel channel, final long from, final long limit, final int maxEvents,
+                      final List<ClickEvent> batch) throws IOException {
+        long position = from;
+        int count = 0;
+        while (position < limit && count < maxEvents) {
+            readBuffer.clear().limit((int) Math.min(readBuffer.capacity(), limit - position));
+            // A positional read may return short, keep filling until the limit or the end of the file
+            while (readBuffer.hasRemaining()) {
+                if (channel.read(readBuffer, position + readBuffer.position()) <= 0) {
+                    break;
+                }
+            }
+            readBuffer.flip();
+
+            int consumed = 0;
+            int size;
+            while (count < maxEvents && (size = recordSize(readBuffer)) > 0) {
+                if (batch != null) {
+                    batch.add(decode(readBuffer.slice(readBuffer.position() + RECORD_HEADER_SIZE,
+                            size - RECORD_HEADER_SIZE)));
+                }
+                readBuffer.position(readBuffer.position() + size);
+                consumed += size;
+                count++;
+            }
+            if (consumed == 0) {
+                break;
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    // Size of the record at the buffer position, 0 when it is cut short and -1 when it is corrupt
+    private static int recordSize(final ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return 0;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > MAX_RECORD_SIZE - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+            return 0;
+        }
+        var crc = new CRC32C();
+        crc.update(buffer.slice(start + RECORD_HEADER_SIZE, length));
+        return (int) crc.getValue() == buffer.getInt(start + Integer.BYTES) ? RECORD_HEADER_SIZE + length : -1;
+    }
+
+    private static byte[] encode(final ClickEvent event) {
+        var shortCode = bytes(event.shortCode());
+        var userAgent = bytes(event.userAgent());
+        var ipAddress = bytes(event.ipAddress());
+        int length = 3 * Integer.BYTES + Long.BYTES + length(shortCode) + length(userAgent) + length(ipAddress);
+
+        var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length)
+                .putInt(length)
+                .putInt(0);
+        putString(record, shortCode);
+        record.putLong(event.epochMillis());
+        putString(record, userAgent);
+        putString(record, ipAddress);
+
+        var crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static ClickEvent decode(final ByteBuffer payload) {
+        var shortCode = getString(payload);
+        long epochMillis = payload.getLong();
+        return new ClickEvent(shortCode, epochMillis, getString(payload), getString(payload));
+    }
+
+    private static byte[] bytes(final String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(final byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length).put(value);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private long readCheckpoint() throws IOException {
+        var checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint).trim());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring unreadable click log checkpoint {}", checkpoint);
+            return 0;
+        }
+    }
+
+    private Path segmentPath(final long base) {
+        return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static long baseOffset(final Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class ClickRollupSink implements ClickEventSink {
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<RollupGranularity, Duration> retention = new EnumMap<>(RollupGranularity.class);
+
+    public ClickRollupSink(final MongoTemplate mongoTemplate,
+                           @Value("${app.analytics.retention.minute:7d}") final Duration minuteRetention,
+                           @Value("${app.analytics.retention.hour:90d}") final Duration hourRetention) {
+        this.mongoTemplate = mongoTemplate;
+        this.retention.put(RollupGranularity.MINUTE, minuteRetention);
+        this.retention.put(RollupGranularity.HOUR, hourRetention);
+    }
+
+    @Override
+    public void write(final List<ClickEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Fold the batch into one delta per rollup document so each document gets a single upsert
+        Map<RollupKey, RollupDelta> deltas = new LinkedHashMap<>();
+        for (ClickEvent event : batch) {
+            var timestamp = event.timestamp();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                deltas.computeIfAbsent(new RollupKey(event.shortCode(), granularity,
+                                granularity.truncate(timestamp)), k -> new RollupDelta())
+                        .add(event);
+            }
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class);
+        deltas.forEach((key, delta) -> bulkOps.upsert(
+                Query.query(Criteria.where("shortCode").is(key.shortCode())
+                        .and("granularity").is(key.granularity().name())
+                        .and("bucketStart").is(key.bucketStart())),
+                toUpdate(key, delta)));
+
+        bulkOps.execute();
+    }
+
+    private Update toUpdate(final RollupKey key, final RollupDelta delta) {
+        var update = new Update().inc("count", delta.count);
+        // Families are a small fixed set, so the userAgents map stays bounded however many distinct headers arrive
+        delta.userAgents.forEach((userAgent, count) -> update.inc("userAgents." + userAgent, count));
+
+        var ttl = retention.get(key.granularity());
+        if (ttl != null) {
+            update.setOnInsert("expireAt", key.granularity().next(key.bucketStart()).plus(ttl));
+        }
+        return update;
+    }
+
+    record RollupKey(String shortCode, RollupGranularity granularity, LocalDateTime bucketStart) {
+    }
+
+    private static final class RollupDelta {
+
+        private long count;
+        private final Map<String, Long> userAgents = new HashMap<>();
+
+        void add(final ClickEvent event) {
+            count++;
+            userAgents.merge(UserAgentFamily.of(event.userAgent()), 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ClickTrackingService {
+
+    private final List<SinkMeters> sinks;
+    private final List<SinkMeters> logSinks;
+    private final ClickAggregator clickAggregator;
+    private final ClickLog clickLog;
+    private final BlockingQueue<ClickEvent> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final BackPressurePolicy backPressurePolicy;
+    private final Duration blockTimeout;
+    private final int workerCount;
+    private final boolean drainOnShutdown;
+    private final Duration shutdownTimeout;
+    private final Duration deliveryTimeout;
+    private final boolean virtualThreads;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Timer acceptedEnqueues;
+    private final Timer droppedEnqueues;
+    private volatile boolean running;
+
+    public ClickTrackingService(final List<ClickEventSink> sinks,
+                                final List<ClickCountSink> countSinks,
+                                final ClickAggregator clickAggregator,
+                                final ClickLog clickLog,
+                                final MeterRegistry meterRegistry,
+                                @Value("${app.clicks.queue-capacity:10000}") final int queueCapacity,
+                                @Value("${app.clicks.batch-size:500}") final int batchSize,
+                                @Value("${app.clicks.flush-interval:1s}") final Duration flushInterval,
+                                @Value("${app.clicks.back-pressure:DROP}") final BackPressurePolicy backPressurePolicy,
+                                @Value("${app.clicks.block-timeout:50ms}") final Duration blockTimeout,
+                                @Value("${app.clicks.workers:1}") final int workerCount,
+                                @Value("${app.clicks.drain-on-shutdown:true}") final boolean drainOnShutdown,
+                                @Value("${app.clicks.shutdown-timeout:10s}") final Duration shutdownTimeout,
+                                @Value("${app.clicks.log.delivery-timeout:10m}") final Duration deliveryTimeout,
+                                @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+        this.sinks = sinks.stream()
+                .map(sink -> sinkMeters(meterRegistry, sinkName(sink), sink))
+                .toList();
+        // Logged clicks are counted from the log as well, so counts are acknowledged, retried and replayed with them
+        this.logSinks = clickLog.isEnabled()
+                ? Stream.concat(this.sinks.stream(), countSinks.stream().map(sink -> sinkMeters(meterRegistry,
+                        sinkName(sink), batch -> sink.write(countsByCode(batch))))).toList()
+                : this.sinks;
+        this.clickAggregator = clickAggregator;
+        this.clickLog = clickLog;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.backPressurePolicy = backPressurePolicy;
+        this.blockTimeout = blockTimeout;
+        this.workerCount = workerCount;
+        this.drainOnShutdown = drainOnShutdown;
+        this.shutdownTimeout = shutdownTimeout;
+        this.deliveryTimeout = deliveryTimeout;
+        this.virtualThreads = virtualThreads;
+
+        this.acceptedEnqueues = enqueueTimer(meterRegistry, "accepted");
+        this.droppedEnqueues = enqueueTimer(meterRegistry, "dropped");
+        Gauge.builder("clicks.queue.size", queue, BlockingQueue::size)
+                .description("Clicks waiting to be persisted")
+                .register(meterRegistry);
+        FunctionCounter.builder("clicks.dropped", droppedEvents, AtomicLong::get)
+                .description("Clicks dropped because the queue or the click log buffer was saturated")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        var threadBuilder = virtualThreads
+                ? Thread.ofVirtual().name("click-worker-", 0)
+                : Thread.ofPlatform().name("click-worker-", 0).daemon(true);
+        if (clickLog.isEnabled()) {
+            // The log is the hand-off, a single worker reads it back in order and acknowledges what the sinks stored
+            workers.add(threadBuilder.start(this::runLogWorker));
+            log.info("Click tracking started from the click log, batch size {}, flush interval {}", batchSize,
+                    flushInterval);
+            return;
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threadBuilder.start(this::runWorker));
+        }
+        log.info("Click tracking started with {} {} worker(s), batch size {}, flush interval {}, back-pressure {}",
+                workerCount, virtualThreads ? "virtual" : "platform", batchSize, flushInterval, backPressurePolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (clickLog.isEnabled()) {
+            // Committed before the worker stops waiting, so its final drain covers what was appended so far
+            clickLog.commit();
+        }
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                worker.join(Math.max(remaining, 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Click tracking stopped with {} unflushed click(s)", queue.size());
+        }
+    }
+
+    // Returns false when the click had to be dropped because the queue is saturated
+    public boolean track(final ClickEvent event) {
+        return enqueue(event, backPressurePolicy == BackPressurePolicy.BLOCK);
+    }
+
+    // Never blocks regardless of the back-pressure policy, for callers running on an event loop
+    public boolean tryTrack(final ClickEvent event) {
+        return enqueue(event, false);
+    }
+
+    private boolean enqueue(final ClickEvent event, final boolean blocking) {
+        long start = System.nanoTime();
+        boolean accepted;
+        if (clickLog.isEnabled()) {
+            accepted = clickLog.append(event, blocking ? blockTimeout.toNanos() : 0);
+            if (!accepted) {
+                // Never reaches the log worker, so counting it here keeps counts exact without counting it twice
+                clickAggregator.record(event.shortCode());
+            }
+        } else {
+            // Counted before the hand-off, so click counts stay exact even when the event itself is dropped
+            clickAggregator.record(event.shortCode());
+            accepted = blocking ? offerBlocking(event) : queue.offer(event);
+        }
+        (accepted ? acceptedEnqueues : droppedEnqueues).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!accepted) {
+            long dropped = droppedEvents.incrementAndGet();
+            log.debug("Click hand-off full, dropped click for {} (total dropped: {})", event.shortCode(), dropped);
+        }
+        return accepted;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private boolean offerBlocking(final ClickEvent event) {
+        try {
+            return queue.offer(event, blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runWorker() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = flushInterval.toNanos();
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+
+        while (running || (drainOnShutdown && !queue.isEmpty())) {
+            try {
+                long wait = running ? Math.max(nextFlush - System.nanoTime(), 0) : 0;
+                var event = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (event != null) {
+                    batch.add(event);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (batch.size() >= batchSize || System.nanoTime() >= nextFlush) {
+                flush(batch);
+                nextFlush = System.nanoTime() + flushIntervalNanos;
+            }
+        }
+
+        flush(batch);
+    }
+
+    private void flush(final List<ClickEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        for (SinkMeters meters : sinks) {
+            write(meters, batch);
+        }
+        batch.clear();
+    }
+
+    // Clicks stay in the log until every sink stored them, so a degraded store only grows the backlog on disk.
+    // A batch still failing after the delivery timeout is dead-lettered, so it cannot hold the log back forever.
+    private void runLogWorker() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        List<SinkMeters> pendingSinks = new ArrayList<>(logSinks);
+        long position = clickLog.getAcknowledgedOffset();
+        long batchStart = position;
+        boolean retrying = false;
+        long retryingSince = 0;
+        long flushIntervalNanos = flushInterval.toNanos();
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+
+        while (running || (drainOnShutdown && clickLog.getCommittedOffset() > position)) {
+            // A batch being retried stays as it is, sinks that already stored it must not miss clicks added later
+            if (!retrying) {
+                try {
+                    if (batch.size() < batchSize) {
+                        clickLog.awaitCommitted(position, running ? nextFlush - System.nanoTime() : 0);
+                        position = clickLog.read(position, batchSize - batch.size(), batch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (IOException e) {
+                    log.error("Failed to read clicks from the click log at offset {}", position, e);
+                    LockSupport.parkNanos(flushIntervalNanos);
+                    continue;
+                }
+                if (batch.size() < batchSize && System.nanoTime() < nextFlush) {
+                    continue;
+                }
+            }
+
+            if (deliver(batch, pendingSinks)) {
+                clickLog.acknowledge(position);
+                batchStart = position;
+                retrying = false;
+            } else if (!running) {
+                break;
+            } else if (!retrying) {
+                retrying = true;
+                retryingSince = System.nanoTime();
+                LockSupport.parkNanos(flushIntervalNanos);
+            } else if (System.nanoTime() - retryingSince >= deliveryTimeout.toNanos()
+                    && deadLetter(batch, pendingSinks, batchStart, position)) {
+                clickLog.acknowledge(position);
+                batchStart = position;
+                retrying = false;
+            } else {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            nextFlush = System.nanoTime() + flushIntervalNanos;
+        }
+
+        if (deliver(batch, pendingSinks)) {
+            clickLog.acknowledge(position);
+        }
+    }
+
+    private boolean deadLetter(final List<ClickEvent> batch, final List<SinkMeters> pendingSinks, final long from,
+                               final long to) {
+        var failedSinks = pendingSinks.stream().map(SinkMeters::name).toList();
+        try {
+            var path = clickLog.deadLetter(from, to);
+            pendingSinks.forEach(meters -> meters.deadLettered().increment(batch.size()));
+            log.error("Moved {} click(s) at click log offsets [{}, {}) to {}, {} kept failing for {}", batch.size(),
+                    from, to, path, failedSinks, deliveryTimeout);
+        } catch (IOException e) {
+            log.error("Failed to dead-letter {} click(s) at click log offset {}, retrying delivery", batch.size(),
+                    from, e);
+            return false;
+        }
+        batch.clear();
+        pendingSinks.clear();
+        pendingSinks.addAll(logSinks);
+        return true;
+    }
+
+    // Retries only the sinks that failed, so one degraded store does not get the others the batch twice
+    private boolean deliver(final List<ClickEvent> batch, final List<SinkMeters> pendingSinks) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        pendingSinks.removeIf(meters -> write(meters, batch));
+        if (!pendingSinks.isEmpty()) {
+            return false;
+        }
+        batch.clear();
+        pendingSinks.addAll(logSinks);
+        return true;
+    }
+
+    private static boolean write(final SinkMeters meters, final List<ClickEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            meters.sink().write(batch);
+            meters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (RuntimeException e) {
+            meters.failure().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("Failed to persist {} click(s) via {}", batch.size(), meters.name(), e);
+            return false;
+        }
+    }
+
+    private static Timer enqueueTimer(final MeterRegistry meterRegistry, final String outcome) {
+        return Timer.builder("clicks.enqueue")
+                .description("Time to hand a click to the batch workers")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static SinkMeters sinkMeters(final MeterRegistry meterRegistry, final String name,
+                                         final ClickEventSink sink) {
+        return new SinkMeters(name, sink,
+                persistTimer(meterRegistry, name, "success"),
+                persistTimer(meterRegistry, name, "failure"),
+                Counter.builder("clicks.log.dead-lettered")
+                        .description("Logged clicks moved to a dead-letter segment after a sink kept failing")
+                        .tag("sink", name)
+                        .register(meterRegistry));
+    }
+
+    private static Timer persistTimer(final MeterRegistry meterRegistry, final String sinkName,
+                                      final String outcome) {
+        return Timer.builder("clicks.persist")
+                .description("Time to write one batch of clicks to a sink")
+                .tag("sink", sinkName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Map<String, Long> countsByCode(final List<ClickEvent> batch) {
+        Map<String, Long> countsByCode = new HashMap<>();
+        for (ClickEvent event : batch) {
+            countsByCode.merge(event.shortCode(), 1L, Long::sum);
+        }
+        return countsByCode;
+    }
+
+    private static String sinkName(final Object sink) {
+        return ClassUtils.getUserClass(sink).getSimpleName();
+    }
+
+    private record SinkMeters(String name, ClickEventSink sink, Timer success, Timer failure, Counter deadLettered) {
+    }
+}
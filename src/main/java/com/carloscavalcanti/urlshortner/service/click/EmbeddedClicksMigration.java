@@ -0,0 +1,151 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One-shot move of the legacy embedded UrlMapping.clicks arrays into click_buckets. A claim document keeps nodes that
+// start together from migrating side by side, and each mapping's buckets get deterministic ids, so a run that resumes
+// after a crash rewrites nothing it already moved.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.clicks.migrate-embedded-clicks", havingValue = "true", matchIfMissing = true)
+public class EmbeddedClicksMigration implements ApplicationRunner {
+
+    static final String MIGRATIONS_COLLECTION = "schema_migrations";
+    static final String MIGRATION_ID = "embedded-clicks-to-buckets";
+    // A claim older than this is taken to belong to a node that died mid-run
+    static final Duration CLAIM_LEASE = Duration.ofHours(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final UserAgentDictionary userAgentDictionary;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!claim()) {
+            return;
+        }
+
+        var legacyQuery = Query.query(Criteria.where("clicks").exists(true));
+        legacyQuery.fields().include("shortCode").include("clicks");
+
+        String mappingsCollection = mongoTemplate.getCollectionName(UrlMapping.class);
+        long migratedMappings = 0;
+        long migratedClicks = 0;
+
+        try (var legacyMappings = mongoTemplate.stream(legacyQuery, Document.class, mappingsCollection)) {
+            for (Document mapping : (Iterable<Document>) legacyMappings::iterator) {
+                migratedClicks += migrate(mapping, mappingsCollection);
+                migratedMappings++;
+            }
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(MIGRATION_ID)),
+                new Update().set("state", "completed").set("completedAt", LocalDateTime.now()), MIGRATIONS_COLLECTION);
+
+        log.info("Migrated {} embedded click(s) from {} mapping(s) into click buckets",
+                migratedClicks, migratedMappings);
+    }
+
+    private boolean claim() {
+        var now = LocalDateTime.now();
+        try {
+            mongoTemplate.insert(new Document("_id", MIGRATION_ID).append("state", "running").append("startedAt", now),
+                    MIGRATIONS_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Completed, running on another node, or left behind by a node that died; only the last is taken over
+            var takeOver = Query.query(Criteria.where("_id").is(MIGRATION_ID)
+                    .and("state").is("running")
+                    .and("startedAt").lt(now.minus(CLAIM_LEASE)));
+            boolean claimed = mongoTemplate.updateFirst(takeOver, new Update().set("startedAt", now),
+                    MIGRATIONS_COLLECTION).getModifiedCount() == 1;
+            if (claimed) {
+                log.warn("Taking over the embedded clicks migration from a stale claim");
+            }
+            return claimed;
+        }
+    }
+
+    private int migrate(final Document mapping, final String mappingsCollection) {
+        var shortCode = mapping.getString("shortCode");
+        List<Document> clicks = mapping.getList("clicks", Document.class, List.of());
+
+        List<ClickInfo> clickInfos = new ArrayList<>(clicks.size());
+        for (Document click : clicks) {
+            var clickInfo = mongoTemplate.getConverter().read(ClickInfo.class, click);
+            if (clickInfo.getTimestamp() != null) {
+                clickInfos.add(clickInfo);
+            }
+        }
+        var userAgentIds = userAgentDictionary.internAll(clickInfos.stream().map(ClickInfo::getUserAgent).toList());
+
+        Map<ClickBucketSink.BucketKey, List<ClickBucketEntry>> entriesByBucket = new LinkedHashMap<>();
+        for (ClickInfo clickInfo : clickInfos) {
+            var entry = new ClickBucketEntry(
+                    clickInfo.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    userAgentIds.getOrDefault(clickInfo.getUserAgent(), UserAgentDictionary.NONE),
+                    IpAddressCodec.pack(clickInfo.getIpAddress()));
+            entriesByBucket.computeIfAbsent(ClickBucketSink.BucketKey.of(shortCode, clickInfo.getTimestamp()),
+                    k -> new ArrayList<>()).add(entry);
+        }
+
+        insertBuckets(mapping.get("_id").toString(), entriesByBucket);
+
+        // Only unset after the buckets are written so an interrupted run never loses clicks; the marker and the
+        // unset land in one update, and a mapping without clicks is never picked up again
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(mapping.get("_id")).and("clicks").exists(true)),
+                new Update().unset("clicks").set("clicksMigratedAt", LocalDateTime.now()), mappingsCollection);
+
+        return clicks.size();
+    }
+
+    // Ids derive from the mapping, hour and chunk, so repeating the write for the same mapping inserts nothing new
+    private void insertBuckets(final String mappingId,
+                               final Map<ClickBucketSink.BucketKey, List<ClickBucketEntry>> entriesByBucket) {
+        if (entriesByBucket.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickBucket.class);
+        entriesByBucket.forEach((key, entries) -> {
+            for (int from = 0; from < entries.size(); from += ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT) {
+                var chunk = entries.subList(from,
+                        Math.min(from + ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT, entries.size()));
+                var id = "migrated:" + mappingId + ":" + key.bucketStart() + ":"
+                        + from / ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT;
+                bulkOps.upsert(Query.query(Criteria.where("_id").is(id)),
+                        new Update()
+                                .setOnInsert("shortCode", key.shortCode())
+                                .setOnInsert("bucketStart", key.bucketStart())
+                                .setOnInsert("count", chunk.size())
+                                .setOnInsert("clicks", chunk));
+            }
+        });
+
+        bulkOps.execute();
+    }
+}
@@ -0,0 +1,83 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+// Packs textual IPv4/IPv6 addresses into their 4 or 16 network-order bytes. Parsing never triggers a DNS
+// lookup: anything that is not an address literal (e.g. a spoofed X-Forwarded-For value) packs to null.
+public final class IpAddressCodec {
+
+    private IpAddressCodec() {
+    }
+
+    public static byte[] pack(final String ipAddress) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return null;
+        }
+        return ipAddress.indexOf(':') < 0 ? packIpv4(ipAddress) : packIpv6(ipAddress);
+    }
+
+    public static String unpack(final byte[] packed) {
+        if (packed == null || (packed.length != 4 && packed.length != 16)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(packed).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static byte[] packIpv4(final String ipAddress) {
+        var bytes = new byte[4];
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < ipAddress.length(); i++) {
+            char c = ipAddress.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && digits > 0 && part < 3) {
+                bytes[part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || digits == 0) {
+            return null;
+        }
+        bytes[3] = (byte) value;
+        return bytes;
+    }
+
+    private static byte[] packIpv6(final String ipAddress) {
+        // Zone ids are meaningless outside the host that saw them
+        var zone = ipAddress.indexOf('%');
+        var literal = zone >= 0 ? ipAddress.substring(0, zone) : ipAddress;
+        if (literal.isEmpty() || (!isHexDigit(literal.charAt(0)) && literal.charAt(0) != ':')) {
+            return null;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (!isHexDigit(c) && c != ':' && c != '.') {
+                return null;
+            }
+        }
+
+        // A string starting with a hex digit or ':' that contains ':' is only ever parsed as an IPv6 literal
+        try {
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHexDigit(final char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
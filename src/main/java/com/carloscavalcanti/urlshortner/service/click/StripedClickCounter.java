@@ -0,0 +1,275 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Aggregated click counts accumulate in striped Redis counters and are folded into url_mappings.clickCount with
+// bulk $inc, so hot links never contend on a single Mongo document
+@Component
+@Slf4j
+public class StripedClickCounter implements ClickCountSink {
+
+    static final String KEY_PREFIX = "clicks:pending:";
+    static final String DIRTY_KEY = "clicks:pending-codes";
+
+    private final MongoTemplate mongoTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean redisEnabled;
+    private final int stripes;
+    private final int flushBatchSize;
+
+    // Counts that could neither be written to Mongo nor returned to Redis, retried on every flush
+    private final Map<String, Long> held = new ConcurrentHashMap<>();
+
+    public StripedClickCounter(final MongoTemplate mongoTemplate,
+                               final StringRedisTemplate stringRedisTemplate,
+                               @Value("${app.clicks.counter.redis-enabled:true}") final boolean redisEnabled,
+                               @Value("${app.clicks.counter.stripes:8}") final int stripes,
+                               @Value("${app.clicks.counter.flush-batch-size:500}") final int flushBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisEnabled = redisEnabled;
+        this.stripes = stripes;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @Override
+    public void write(final Map<String, Long> countsByCode) {
+        if (countsByCode.isEmpty()) {
+            return;
+        }
+
+        if (!redisEnabled) {
+            writePersisted(countsByCode);
+            return;
+        }
+
+        try {
+            incrementPending(countsByCode);
+        } catch (RuntimeException e) {
+            log.warn("Unable to buffer {} click count(s) in Redis, writing them to Mongo directly",
+                    countsByCode.size(), e);
+            writePersisted(countsByCode);
+        }
+    }
+
+    // Clicks counted in Redis but not yet written back, added to the persisted clickCount for exact totals
+    public long getPendingCount(final String shortCode) {
+        long pending = held.getOrDefault(shortCode, 0L);
+        if (!redisEnabled) {
+            return pending;
+        }
+
+        try {
+            var values = stringRedisTemplate.opsForValue().multiGet(stripeKeys(shortCode));
+            if (values != null) {
+                for (String value : values) {
+                    pending += value != null ? Long.parseLong(value) : 0;
+                }
+            }
+            return pending;
+        } catch (RuntimeException e) {
+            log.debug("Unable to read pending click count for {} from Redis", shortCode, e);
+            return pending;
+        }
+    }
+
+    // Drops buffered counts of deleted mappings, there is no document left to write them back to
+    public void discard(final List<String> shortCodes) {
+        shortCodes.forEach(held::remove);
+        if (!redisEnabled || shortCodes.isEmpty()) {
+            return;
+        }
+
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String shortCode : shortCodes) {
+                    connection.keyCommands().del(stripeKeys(shortCode).stream()
+                            .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                            .toArray(byte[][]::new));
+                }
+                connection.setCommands().sRem(DIRTY_KEY.getBytes(StandardCharsets.UTF_8), shortCodes.stream()
+                        .map(shortCode -> shortCode.getBytes(StandardCharsets.UTF_8))
+                        .toArray(byte[][]::new));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.debug("Unable to discard pending click counts of {} short code(s)", shortCodes.size(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.clicks.counter.flush-interval:5s}")
+    public void flush() {
+        retryHeld();
+        if (!redisEnabled) {
+            return;
+        }
+
+        try {
+            List<String> shortCodes;
+            do {
+                // SPOP hands each code to exactly one node when several instances flush concurrently
+                shortCodes = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, flushBatchSize);
+                if (shortCodes != null && !shortCodes.isEmpty()) {
+                    flushCodes(shortCodes);
+                }
+            } while (shortCodes != null && shortCodes.size() == flushBatchSize);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush pending click counts", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!held.isEmpty()) {
+            log.error("Dropping {} held click count(s) on shutdown, Mongo is unavailable", held.size());
+        }
+    }
+
+    private void flushCodes(final List<String> shortCodes) {
+        // GETDEL takes each stripe atomically, increments landing after it are picked up next round
+        var values = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String shortCode : shortCodes) {
+                for (String key : stripeKeys(shortCode)) {
+                    connection.stringCommands().getDel(key.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return null;
+        });
+
+        Map<String, Long> countsByCode = new LinkedHashMap<>();
+        for (int i = 0; i < shortCodes.size(); i++) {
+            long count = 0;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                var value = values.get(i * stripes + stripe);
+                count += value != null ? Long.parseLong(value.toString()) : 0;
+            }
+            if (count > 0) {
+                countsByCode.put(shortCodes.get(i), count);
+            }
+        }
+
+        var failed = incrementPersisted(countsByCode);
+        if (failed.isEmpty()) {
+            return;
+        }
+        try {
+            incrementPending(failed);
+        } catch (RuntimeException e) {
+            log.warn("Unable to return {} click count(s) to Redis, holding them locally", failed.size(), e);
+            hold(failed);
+        }
+    }
+
+    // When nothing was applied the caller still owns the counts and retries them, so they stay as durable as its
+    // source; only the rest of a partial failure is held here, retrying all of it would apply some increments twice
+    private void writePersisted(final Map<String, Long> countsByCode) {
+        var failed = incrementPersisted(countsByCode);
+        if (!failed.isEmpty() && failed.size() == countsByCode.size()) {
+            throw new IllegalStateException("Unable to write " + failed.size() + " click count(s) to Mongo");
+        }
+        hold(failed);
+    }
+
+    private void retryHeld() {
+        if (held.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> retry = new LinkedHashMap<>();
+        for (String shortCode : held.keySet()) {
+            var count = held.remove(shortCode);
+            if (count != null) {
+                retry.put(shortCode, count);
+            }
+        }
+        hold(incrementPersisted(retry));
+    }
+
+    private void hold(final Map<String, Long> countsByCode) {
+        countsByCode.forEach((shortCode, count) -> held.merge(shortCode, count, Long::sum));
+    }
+
+    private void incrementPending(final Map<String, Long> countsByCode) {
+        if (countsByCode.isEmpty()) {
+            return;
+        }
+
+        // Counter first, then the dirty marker, so a concurrent flush can never pop the code before the increment
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            int stripe = ThreadLocalRandom.current().nextInt(stripes);
+            countsByCode.forEach((shortCode, count) -> connection.stringCommands().incrBy(
+                    stripeKey(shortCode, stripe).getBytes(StandardCharsets.UTF_8), count));
+            connection.setCommands().sAdd(DIRTY_KEY.getBytes(StandardCharsets.UTF_8),
+                    countsByCode.keySet().stream()
+                            .map(shortCode -> shortCode.getBytes(StandardCharsets.UTF_8))
+                            .toArray(byte[][]::new));
+            return null;
+        });
+    }
+
+    // Returns the counts that were not applied. An unordered bulk keeps going past failed updates, so only the
+    // reported ones are returned; returning all of them would apply the successful increments twice.
+    private Map<String, Long> incrementPersisted(final Map<String, Long> countsByCode) {
+        if (countsByCode.isEmpty()) {
+            return Map.of();
+        }
+
+        // One $inc per short code instead of one full-document rewrite per click
+        List<Map.Entry<String, Long>> updates = new ArrayList<>(countsByCode.entrySet());
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class);
+        updates.forEach(update -> bulkOps.updateOne(
+                Query.query(Criteria.where("shortCode").is(update.getKey())),
+                new Update().inc("clickCount", update.getValue())));
+
+        try {
+            bulkOps.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<String, Long> failed = new LinkedHashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                var update = updates.get(error.getIndex());
+                failed.put(update.getKey(), update.getValue());
+            }
+            log.warn("Failed to write back {} of {} click count(s)", failed.size(), updates.size(), e);
+            return failed;
+        } catch (RuntimeException e) {
+            log.warn("Failed to write back {} click count(s)", updates.size(), e);
+            return countsByCode;
+        }
+    }
+
+    private List<String> stripeKeys(final String shortCode) {
+        List<String> keys = new ArrayList<>(stripes);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            keys.add(stripeKey(shortCode, stripe));
+        }
+        return keys;
+    }
+
+    private static String stripeKey(final String shortCode, final int stripe) {
+        return KEY_PREFIX + shortCode + ":" + stripe;
+    }
+}
@@ -0,0 +1,107 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.UserAgentEntry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Interns User-Agent headers into 64-bit ids kept in user_agents, so a click entry stores 8 bytes instead of the
+// full header. Ids are the leading bytes of the header's SHA-256, so nodes agree on them without coordination.
+@Component
+public class UserAgentDictionary {
+
+    public static final long NONE = 0L;
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, Long> idsByUserAgent;
+    private final Cache<Long, String> userAgentsById;
+
+    public UserAgentDictionary(final MongoTemplate mongoTemplate,
+                               @Value("${app.clicks.user-agent-cache.max-size:10000}") final long maxSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.idsByUserAgent = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.userAgentsById = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    // Ids for the given headers; ones this node has not seen yet are registered with a single bulk upsert
+    public Map<String, Long> internAll(final Collection<String> userAgents) {
+        Map<String, Long> ids = new HashMap<>();
+        Map<Long, String> unseen = new HashMap<>();
+        for (String userAgent : userAgents) {
+            if (userAgent == null || ids.containsKey(userAgent)) {
+                continue;
+            }
+            var id = idsByUserAgent.getIfPresent(userAgent);
+            if (id == null) {
+                id = idOf(userAgent);
+                unseen.put(id, userAgent);
+            }
+            ids.put(userAgent, id);
+        }
+
+        if (!unseen.isEmpty()) {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserAgentEntry.class);
+            unseen.forEach((id, userAgent) -> bulkOps.upsert(Query.query(Criteria.where("_id").is(id)),
+                    new Update().setOnInsert("userAgent", userAgent)));
+            bulkOps.execute();
+            unseen.forEach(this::remember);
+        }
+        return ids;
+    }
+
+    public Map<Long, String> resolveAll(final Collection<Long> ids) {
+        Map<Long, String> userAgents = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            if (id == null || id == NONE || userAgents.containsKey(id)) {
+                continue;
+            }
+            var userAgent = userAgentsById.getIfPresent(id);
+            if (userAgent != null) {
+                userAgents.put(id, userAgent);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (UserAgentEntry entry : mongoTemplate.find(Query.query(Criteria.where("_id").in(missing)),
+                    UserAgentEntry.class)) {
+                userAgents.put(entry.getId(), entry.getUserAgent());
+                remember(entry.getId(), entry.getUserAgent());
+            }
+        }
+        return userAgents;
+    }
+
+    static long idOf(final String userAgent) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(userAgent.getBytes(StandardCharsets.UTF_8));
+            long id = ByteBuffer.wrap(digest).getLong();
+            return id != NONE ? id : 1L;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void remember(final Long id, final String userAgent) {
+        idsByUserAgent.put(userAgent, id);
+        userAgentsById.put(id, userAgent);
+    }
+}
@@ -0,0 +1,55 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import java.util.List;
+import java.util.Locale;
+
+// Reduces a User-Agent header to a browser or client family plus a mobile marker, so rollup documents are keyed on
+// a small fixed set of values instead of one field per distinct header
+public final class UserAgentFamily {
+
+    public static final String UNKNOWN = "unknown";
+    public static final String OTHER = "Other";
+
+    private static final String MOBILE_SUFFIX = " Mobile";
+
+    // First match wins, so the more specific tokens come before the engines they build on
+    private static final List<Rule> RULES = List.of(
+            new Rule("Bot", "bot", "crawler", "spider", "slurp"),
+            new Rule("Edge", "edg/", "edga/", "edgios/"),
+            new Rule("Opera", "opr/", "opera"),
+            new Rule("Samsung Internet", "samsungbrowser/"),
+            new Rule("Chrome", "chrome/", "crios/", "chromium/"),
+            new Rule("Firefox", "firefox/", "fxios/"),
+            new Rule("Safari", "safari/"),
+            new Rule("curl", "curl/"),
+            new Rule("Wget", "wget/"),
+            new Rule("Python", "python-requests/", "python-urllib/", "aiohttp/"),
+            new Rule("Java", "java/", "okhttp/", "apache-httpclient/"));
+
+    private UserAgentFamily() {}
+
+    public static String of(final String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN;
+        }
+        var header = userAgent.toLowerCase(Locale.ROOT);
+        for (Rule rule : RULES) {
+            if (rule.matches(header)) {
+                return header.contains("mobi") ? rule.family() + MOBILE_SUFFIX : rule.family();
+            }
+        }
+        return OTHER;
+    }
+
+    private record Rule(String family, String... tokens) {
+
+        boolean matches(final String header) {
+            for (String token : tokens) {
+                if (header.contains(token)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.carloscavalcanti.urlshortner.service.dedup;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+// Computes originalUrlHash for mappings created before URL deduplication was hash-based
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OriginalUrlHashBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UrlNormalizer urlNormalizer;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        var missingHash = Query.query(Criteria.where("originalUrlHash").exists(false));
+        missingHash.fields().include("originalUrl");
+
+        String mappingsCollection = mongoTemplate.getCollectionName(UrlMapping.class);
+        long backfilled = 0;
+        int pending = 0;
+        var bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, mappingsCollection);
+
+        try (var mappings = mongoTemplate.stream(missingHash, Document.class, mappingsCollection)) {
+            for (Document mapping : (Iterable<Document>) mappings::iterator) {
+                var originalUrl = mapping.getString("originalUrl");
+                if (originalUrl == null) {
+                    continue;
+                }
+                bulkOps.updateOne(Query.query(Criteria.where("_id").is(mapping.get("_id"))),
+                        new Update().set("originalUrlHash", urlNormalizer.fingerprint(originalUrl)));
+                if (++pending == BATCH_SIZE) {
+                    bulkOps.execute();
+                    bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, mappingsCollection);
+                    backfilled += pending;
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            bulkOps.execute();
+            backfilled += pending;
+        }
+
+        if (backfilled > 0) {
+            log.info("Backfilled originalUrlHash on {} mapping(s)", backfilled);
+        }
+    }
+}
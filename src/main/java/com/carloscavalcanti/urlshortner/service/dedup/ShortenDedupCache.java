@@ -0,0 +1,114 @@
+package com.carloscavalcanti.urlshortner.service.dedup;
+
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.carloscavalcanti.urlshortner.service.change.UrlMappingChangeConsumer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Recent URL fingerprint -> short code, so repeated shortens of hot URLs skip the dedup query. Codes deactivated or
+// deleted on any node are evicted through the mapping change feed, so they are not handed out again.
+@Component
+@Slf4j
+public class ShortenDedupCache implements UrlMappingChangeConsumer {
+
+    static final String KEY_PREFIX = "url-dedup:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final boolean remoteEnabled;
+    private final Duration ttl;
+    private final Cache<String, String> localCache;
+    // Reverse index of the local tier, changes only carry the short code
+    private final Map<String, String> hashByShortCode = new ConcurrentHashMap<>();
+
+    public ShortenDedupCache(final StringRedisTemplate stringRedisTemplate,
+                             @Value("${app.dedup-cache.enabled:true}") final boolean enabled,
+                             @Value("${app.dedup-cache.remote-enabled:false}") final boolean remoteEnabled,
+                             @Value("${app.dedup-cache.max-size:50000}") final long maxSize,
+                             @Value("${app.dedup-cache.ttl:10m}") final Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.remoteEnabled = remoteEnabled;
+        this.ttl = ttl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .<String, String>evictionListener((urlHash, shortCode, cause) -> {
+                    if (shortCode != null) {
+                        hashByShortCode.remove(shortCode, urlHash);
+                    }
+                })
+                .build();
+    }
+
+    public String get(final String urlHash) {
+        if (!enabled) {
+            return null;
+        }
+        var shortCode = localCache.getIfPresent(urlHash);
+        if (shortCode == null && remoteEnabled) {
+            try {
+                shortCode = stringRedisTemplate.opsForValue().get(KEY_PREFIX + urlHash);
+            } catch (RuntimeException e) {
+                log.debug("Unable to read dedup cache entry from Redis", e);
+            }
+            if (shortCode != null) {
+                putLocal(urlHash, shortCode);
+            }
+        }
+        return shortCode;
+    }
+
+    public void put(final String urlHash, final String shortCode) {
+        if (!enabled) {
+            return;
+        }
+        putLocal(urlHash, shortCode);
+        if (remoteEnabled) {
+            try {
+                stringRedisTemplate.opsForValue().set(KEY_PREFIX + urlHash, shortCode, ttl);
+            } catch (RuntimeException e) {
+                log.debug("Unable to write dedup cache entry to Redis", e);
+            }
+        }
+    }
+
+    public void evict(final String urlHash) {
+        var shortCode = localCache.asMap().remove(urlHash);
+        if (shortCode != null) {
+            hashByShortCode.remove(shortCode, urlHash);
+        }
+        if (remoteEnabled) {
+            try {
+                stringRedisTemplate.delete(KEY_PREFIX + urlHash);
+            } catch (RuntimeException e) {
+                log.debug("Unable to delete dedup cache entry from Redis", e);
+            }
+        }
+    }
+
+    @Override
+    public void onChange(final UrlMappingChange change) {
+        if (change.type() == UrlMappingChange.Type.INSERTED
+                || change.resolvedUrl() != null && change.resolvedUrl().isAvailable()) {
+            return;
+        }
+        var urlHash = hashByShortCode.get(change.shortCode());
+        if (urlHash != null) {
+            evict(urlHash);
+        }
+    }
+
+    private void putLocal(final String urlHash, final String shortCode) {
+        localCache.put(urlHash, shortCode);
+        hashByShortCode.put(shortCode, urlHash);
+    }
+}
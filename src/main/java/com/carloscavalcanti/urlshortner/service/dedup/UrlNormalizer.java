@@ -0,0 +1,121 @@
+package com.carloscavalcanti.urlshortner.service.dedup;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+
+// Canonicalises URLs so equivalent forms dedup to the same short code
+@Component
+public class UrlNormalizer {
+
+    private final boolean lowercaseSchemeAndHost;
+    private final boolean removeDefaultPort;
+    private final boolean removeTrailingSlash;
+    private final boolean sortQueryParameters;
+
+    public UrlNormalizer(@Value("${app.url-normalization.lowercase-scheme-and-host:true}")
+                         final boolean lowercaseSchemeAndHost,
+                         @Value("${app.url-normalization.remove-default-port:true}") final boolean removeDefaultPort,
+                         @Value("${app.url-normalization.remove-trailing-slash:true}")
+                         final boolean removeTrailingSlash,
+                         @Value("${app.url-normalization.sort-query-parameters:true}")
+                         final boolean sortQueryParameters) {
+        this.lowercaseSchemeAndHost = lowercaseSchemeAndHost;
+        this.removeDefaultPort = removeDefaultPort;
+        this.removeTrailingSlash = removeTrailingSlash;
+        this.sortQueryParameters = sortQueryParameters;
+    }
+
+    public String normalize(final String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            // Unparseable input still dedups, just only against byte-identical URLs
+            return url;
+        }
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return url;
+        }
+
+        var scheme = lowercaseSchemeAndHost ? uri.getScheme().toLowerCase(Locale.ROOT) : uri.getScheme();
+        var host = uri.getHost();
+        if (host == null) {
+            return url;
+        }
+        host = lowercaseSchemeAndHost ? host.toLowerCase(Locale.ROOT) : host;
+
+        int port = uri.getPort();
+        if (removeDefaultPort && isDefaultPort(scheme.toLowerCase(Locale.ROOT), port)) {
+            port = -1;
+        }
+
+        var path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        if (removeTrailingSlash) {
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+        }
+
+        var query = uri.getRawQuery();
+        if (sortQueryParameters && query != null) {
+            var parameters = query.split("&");
+            Arrays.sort(parameters);
+            query = String.join("&", parameters);
+        }
+
+        var normalized = new StringBuilder(url.length())
+                .append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            normalized.append(uri.getRawUserInfo()).append('@');
+        }
+        normalized.append(host);
+        if (port != -1) {
+            normalized.append(':').append(port);
+        }
+        normalized.append(path);
+        if (query != null) {
+            normalized.append('?').append(query);
+        }
+        if (uri.getRawFragment() != null) {
+            normalized.append('#').append(uri.getRawFragment());
+        }
+        return normalized.toString();
+    }
+
+    // Fixed-length SHA-256 hex digest of the normalized URL, used as the indexed dedup key
+    public String fingerprint(final String url) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalize(url).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // A URL shortened with a non-default redirect type or an expiry gets its own mapping instead of reusing the
+    // permanent 302 one; identical requests still share a code
+    public String fingerprint(final String url, final RedirectType redirectType, final LocalDateTime expiresAt) {
+        var fingerprint = fingerprint(url);
+        var type = RedirectType.orDefault(redirectType);
+        if (type != RedirectType.DEFAULT) {
+            fingerprint += ":" + type;
+        }
+        return expiresAt == null ? fingerprint : fingerprint + "@" + expiresAt;
+    }
+
+    private static boolean isDefaultPort(final String scheme, final int port) {
+        return ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+    }
+}
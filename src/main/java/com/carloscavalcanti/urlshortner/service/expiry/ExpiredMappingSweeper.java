@@ -0,0 +1,139 @@
+package com.carloscavalcanti.urlshortner.service.expiry;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.click.StripedClickCounter;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Deletes mappings past expiresAt together with their click history, buffered counters and cached resolutions.
+// A plain TTL index would drop the mapping only, and in one unthrottled pass, so this runs in bounded batches, on one
+// node at a time: a run needs a Redis lease that is left to expire, so the cluster sweeps at most once per lease.
+@Component
+@Slf4j
+public class ExpiredMappingSweeper {
+
+    static final String LEASE_KEY = "expiry-sweeper:lease";
+
+    private final MongoTemplate mongoTemplate;
+    private final UrlResolutionCache urlResolutionCache;
+    private final ShortenDedupCache shortenDedupCache;
+    private final StripedClickCounter stripedClickCounter;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final boolean enabled;
+    private final Duration lease;
+    private final Duration grace;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public ExpiredMappingSweeper(final MongoTemplate mongoTemplate,
+                                 final UrlResolutionCache urlResolutionCache,
+                                 final ShortenDedupCache shortenDedupCache,
+                                 final StripedClickCounter stripedClickCounter,
+                                 final UniqueVisitorCounter uniqueVisitorCounter,
+                                 final StringRedisTemplate stringRedisTemplate,
+                                 @Value("${app.expiry.sweeper.enabled:true}") final boolean enabled,
+                                 @Value("${app.expiry.sweeper.lease:1m}") final Duration lease,
+                                 @Value("${app.expiry.sweeper.grace:1h}") final Duration grace,
+                                 @Value("${app.expiry.sweeper.batch-size:500}") final int batchSize,
+                                 @Value("${app.expiry.sweeper.max-batches-per-run:20}") final int maxBatchesPerRun) {
+        this.mongoTemplate = mongoTemplate;
+        this.urlResolutionCache = urlResolutionCache;
+        this.shortenDedupCache = shortenDedupCache;
+        this.stripedClickCounter = stripedClickCounter;
+        this.uniqueVisitorCounter = uniqueVisitorCounter;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.lease = lease;
+        this.grace = grace;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.sweeper.interval:1m}")
+    public void sweep() {
+        if (!enabled || !acquireLease()) {
+            return;
+        }
+
+        // The grace period lets queued clicks of the last valid redirects land before their history is purged
+        var cutoff = LocalDateTime.now().minus(grace);
+        long swept = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int removed = sweepBatch(cutoff);
+                swept += removed;
+                if (removed < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to sweep expired mappings", e);
+        }
+
+        if (swept > 0) {
+            log.info("Swept {} expired mapping(s)", swept);
+        }
+    }
+
+    // Expired links already answer 404, so a run skipped while Redis is unavailable only delays the cleanup
+    private boolean acquireLease() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LEASE_KEY, leaseOwner, lease));
+        } catch (RuntimeException e) {
+            log.warn("Unable to take the expiry sweeper lease, skipping this run", e);
+            return false;
+        }
+    }
+
+    int sweepBatch(final LocalDateTime cutoff) {
+        var query = Query.query(Criteria.where("expiresAt").lt(cutoff)).limit(batchSize);
+        query.fields().include("shortCode", "originalUrlHash");
+
+        List<UrlMapping> expired = mongoTemplate.find(query, UrlMapping.class);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        List<String> shortCodes = expired.stream().map(UrlMapping::getShortCode).toList();
+        var byShortCode = Query.query(Criteria.where("shortCode").in(shortCodes));
+
+        // Click data first, so a failure part-way leaves the mapping behind for the next run to retry
+        mongoTemplate.remove(byShortCode, ClickBucket.class);
+        mongoTemplate.remove(byShortCode, ClickRollup.class);
+        stripedClickCounter.discard(shortCodes);
+        uniqueVisitorCounter.purge(shortCodes);
+
+        // Deactivated first, so nodes polling updatedAt for changes (which cannot see deletes) still drop them
+        var byId = Query.query(Criteria.where("_id").in(expired.stream().map(UrlMapping::getId).toList()));
+        mongoTemplate.updateMulti(byId, new Update().set("active", false).set("updatedAt", LocalDateTime.now()),
+                UrlMapping.class);
+        mongoTemplate.remove(byId, UrlMapping.class);
+
+        for (UrlMapping mapping : expired) {
+            urlResolutionCache.invalidate(mapping.getShortCode());
+            if (mapping.getOriginalUrlHash() != null) {
+                shortenDedupCache.evict(mapping.getOriginalUrlHash());
+            }
+        }
+        return expired.size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.carloscavalcanti.urlshortner.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Stage timings of the redirect and shorten pipelines, every meter is registered up front so recording
+// on the hot path is a map lookup; percentiles and histograms are set under management.metrics.distribution
+@Component
+public class ShortenerMetrics {
+
+    public enum RedirectOutcome { REDIRECTED, FILTERED, NOT_FOUND, UNAVAILABLE }
+
+    public enum ShortenOutcome { CREATED, EXISTING, FAILED }
+
+    public enum DedupSource { CACHE, DATABASE }
+
+    private final Map<RedirectOutcome, Timer> redirectTimers = new EnumMap<>(RedirectOutcome.class);
+    private final Map<ShortenOutcome, Timer> shortenTimers = new EnumMap<>(ShortenOutcome.class);
+    private final Map<DedupSource, Timer> dedupHits = new EnumMap<>(DedupSource.class);
+    private final Map<DedupSource, Timer> dedupMisses = new EnumMap<>(DedupSource.class);
+    private final DistributionSummary singleCodeAttempts;
+    private final DistributionSummary batchCodeAttempts;
+
+    public ShortenerMetrics(final MeterRegistry meterRegistry) {
+        for (RedirectOutcome outcome : RedirectOutcome.values()) {
+            redirectTimers.put(outcome, Timer.builder("url.redirect")
+                    .description("Short code resolution and click enqueue, excluding the HTTP layer")
+                    .tag("outcome", tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        for (ShortenOutcome outcome : ShortenOutcome.values()) {
+            shortenTimers.put(outcome, Timer.builder("url.shorten")
+                    .description("Single URL shortening including dedup and code allocation")
+                    .tag("outcome", tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        for (DedupSource source : DedupSource.values()) {
+            dedupHits.put(source, dedupTimer(meterRegistry, source, "hit"));
+            dedupMisses.put(source, dedupTimer(meterRegistry, source, "miss"));
+        }
+        this.singleCodeAttempts = codeAttempts(meterRegistry, "single");
+        this.batchCodeAttempts = codeAttempts(meterRegistry, "batch");
+    }
+
+    public void recordRedirect(final RedirectOutcome outcome, final long startNanos) {
+        redirectTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordShorten(final ShortenOutcome outcome, final long startNanos) {
+        shortenTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDedupLookup(final DedupSource source, final boolean hit, final long startNanos) {
+        (hit ? dedupHits : dedupMisses).get(source).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Insert attempts needed to allocate a unique code, anything above 1 means short code collisions
+    public void recordCodeAttempts(final int attempts) {
+        singleCodeAttempts.record(attempts);
+    }
+
+    public void recordBatchCodeAttempts(final int attempts) {
+        batchCodeAttempts.record(attempts);
+    }
+
+    private static Timer dedupTimer(final MeterRegistry meterRegistry, final DedupSource source,
+                                    final String result) {
+        return Timer.builder("url.shorten.dedup")
+                .description("Lookups for an existing short code of an equivalent URL")
+                .tag("source", tagValue(source))
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary codeAttempts(final MeterRegistry meterRegistry, final String mode) {
+        return DistributionSummary.builder("url.shorten.code.attempts")
+                .description("Insert attempts per allocated short code")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(final Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,44 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+public final class Base62 {
+
+    public static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    public static final int RADIX = ALPHABET.length();
+
+    private Base62() {}
+
+    // Fixed-width encoding, left-padded with the zero digit
+    public static String encode(final long value, final int length) {
+        if (value < 0 || value >= capacity(length)) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in " + length + " base62 digits");
+        }
+        var chars = new char[length];
+        long remaining = value;
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (remaining % RADIX));
+            remaining /= RADIX;
+        }
+        return new String(chars);
+    }
+
+    public static long decode(final String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            int digit = ALPHABET.indexOf(code.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid base62 character in " + code);
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    // Number of distinct codes of the given length
+    public static long capacity(final int length) {
+        long capacity = 1;
+        for (int i = 0; i < length; i++) {
+            capacity = Math.multiplyExact(capacity, RADIX);
+        }
+        return capacity;
+    }
+}
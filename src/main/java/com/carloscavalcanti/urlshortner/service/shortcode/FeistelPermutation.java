@@ -0,0 +1,82 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+// Keyed bijection on [0, domainSize): a balanced Feistel network with cycle-walking,
+// so sequential counter values map to scattered, non-sequential codes without collisions
+public class FeistelPermutation {
+
+    private static final int ROUNDS = 4;
+
+    private final long domainSize;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public FeistelPermutation(final long domainSize, final long key) {
+        this.domainSize = domainSize;
+        int bits = 64 - Long.numberOfLeadingZeros(domainSize - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = mix(state + 0x9e3779b97f4a7c15L);
+            roundKeys[i] = state;
+        }
+    }
+
+    public long permute(final long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value " + value + " outside permutation domain");
+        }
+        // The network covers the next power of two, walk until we land back inside the domain
+        long result = encrypt(value);
+        while (result >= domainSize) {
+            result = encrypt(result);
+        }
+        return result;
+    }
+
+    public long inverse(final long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value " + value + " outside permutation domain");
+        }
+        long result = decrypt(value);
+        while (result >= domainSize) {
+            result = decrypt(result);
+        }
+        return result;
+    }
+
+    private long encrypt(final long value) {
+        long left = (value >>> halfBits) & halfMask;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ round(right, i);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long decrypt(final long value) {
+        long left = (value >>> halfBits) & halfMask;
+        long right = value & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ round(left, i);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long round(final long half, final int index) {
+        return mix(half ^ roundKeys[index]) & halfMask;
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,34 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+// Uniformly random codes; collisions are detected by the unique shortCode index on insert and retried
+@Component
+@ConditionalOnProperty(name = "app.short-code.strategy", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int length;
+
+    public RandomShortCodeGenerator(@Value("${app.short-code-length:6}") final int length) {
+        this.length = length;
+    }
+
+    @Override
+    public String next() {
+        return generateRandomString(length);
+    }
+
+    static String generateRandomString(final int length) {
+        var sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(Base62.ALPHABET.charAt(RANDOM.nextInt(Base62.RADIX)));
+        }
+        return sb.toString();
+    }
+}
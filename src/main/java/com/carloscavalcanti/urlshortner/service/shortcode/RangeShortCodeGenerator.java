@@ -0,0 +1,140 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Leases blocks of IDs from a shared Mongo counter, so codes are unique across nodes without existence checks.
+// Each ID is passed through a keyed permutation before base62 encoding so consecutive codes are not guessable.
+// IDs are handed out without a lock; the next block is leased in the background once half of the current one is
+// used, so shorten requests rarely wait on the counter, and never inside a monitor that would pin a virtual thread.
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.short-code.strategy", havingValue = "range", matchIfMissing = true)
+public class RangeShortCodeGenerator implements ShortCodeGenerator {
+
+    static final String COUNTERS_COLLECTION = "counters";
+    static final String COUNTER_ID = "short_code";
+
+    private final MongoTemplate mongoTemplate;
+    private final int length;
+    private final long blockSize;
+    private final long capacity;
+    private final FeistelPermutation permutation;
+
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private volatile Block current = Block.EMPTY;
+    // Guarded by leaseLock
+    private CompletableFuture<Block> prefetched;
+
+    public RangeShortCodeGenerator(final MongoTemplate mongoTemplate,
+                                   @Value("${app.short-code-length:6}") final int length,
+                                   @Value("${app.short-code.block-size:1000}") final long blockSize,
+                                   @Value("${app.short-code.permutation-key:}") final String permutationKey,
+                                   @Value("${app.short-code.require-permutation-key:true}")
+                                   final boolean requirePermutationKey) {
+        this.mongoTemplate = mongoTemplate;
+        this.length = length;
+        this.blockSize = blockSize;
+        this.capacity = Base62.capacity(length);
+        this.permutation = new FeistelPermutation(capacity,
+                resolvePermutationKey(permutationKey, requirePermutationKey));
+    }
+
+    // With a well-known key the permutation can be inverted, turning codes back into sequential, enumerable IDs
+    static long resolvePermutationKey(final String permutationKey, final boolean required) {
+        if (permutationKey != null && !permutationKey.isBlank()) {
+            return Long.parseLong(permutationKey.trim());
+        }
+        if (required) {
+            throw new IllegalStateException("app.short-code.permutation-key is not set; "
+                    + "provide a secret key through SHORT_CODE_PERMUTATION_KEY");
+        }
+        log.warn("app.short-code.permutation-key is not set, short codes can be mapped back to sequential IDs");
+        return 0;
+    }
+
+    @Override
+    public String next() {
+        while (true) {
+            var block = current;
+            long id = block.next().getAndIncrement();
+            if (id < block.limit()) {
+                if (id == block.prefetchAt()) {
+                    prefetch();
+                }
+                return Base62.encode(permutation.permute(id), length);
+            }
+            refill(block);
+        }
+    }
+
+    private void prefetch() {
+        leaseLock.lock();
+        try {
+            if (prefetched != null) {
+                return;
+            }
+            prefetched = CompletableFuture.supplyAsync(this::leaseBlock,
+                    task -> Thread.ofVirtual().name("short-code-lease").start(task));
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    // Callers that find the block exhausted line up here; the first one swaps in the next block for all of them
+    private void refill(final Block exhausted) {
+        leaseLock.lock();
+        try {
+            if (current != exhausted) {
+                return;
+            }
+            Block block = null;
+            if (prefetched != null) {
+                try {
+                    block = prefetched.join();
+                } catch (CompletionException e) {
+                    log.warn("Background short code block lease failed, leasing again", e.getCause());
+                }
+                prefetched = null;
+            }
+            current = block != null ? block : leaseBlock();
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private Block leaseBlock() {
+        var counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(COUNTER_ID)),
+                new Update().inc("value", blockSize),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Document.class,
+                COUNTERS_COLLECTION);
+
+        long end = counter.get("value", Number.class).longValue();
+        if (end > capacity) {
+            throw new IllegalStateException("Short code space of length " + length + " is exhausted");
+        }
+        long start = end - blockSize;
+        log.debug("Leased short code block [{}, {})", start, end);
+        return new Block(new AtomicLong(start), end, start + blockSize / 2);
+    }
+
+    private record Block(AtomicLong next, long limit, long prefetchAt) {
+
+        static final Block EMPTY = new Block(new AtomicLong(), 0, -1);
+    }
+}
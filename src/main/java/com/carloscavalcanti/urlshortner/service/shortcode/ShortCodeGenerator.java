@@ -0,0 +1,6 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+public interface ShortCodeGenerator {
+
+    String next();
+}
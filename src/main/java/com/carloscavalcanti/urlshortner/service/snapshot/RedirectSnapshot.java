@@ -0,0 +1,199 @@
+package com.carloscavalcanti.urlshortner.service.snapshot;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Read-only, memory-mapped view of a snapshot written by RedirectSnapshotWriter. Nothing is loaded onto the heap:
+// the OS pages the index and records in on demand, and a key lookup hashes and compares the String in place.
+//
+// Layout (big-endian):
+//   header   magic, version, entryCount, slotCount, createdAt millis, indexOffset, recordsOffset
+//   index    slotCount longs, open addressing with linear probing; 0 = empty, otherwise
+//            (24-bit hash tag << 40) | (record offset + 1)
+//   records  sorted by short code: keyLen u8, key (ASCII), flags u8, redirectType u8,
+//            [expiresAt millis i64 if FLAG_EXPIRES], urlLen i32, url (UTF-8)
+// Both regions are mapped in 1 GiB chunks; records never cross a chunk boundary, so reads never straddle two buffers.
+public final class RedirectSnapshot {
+
+    static final int MAGIC = 0x52534E50;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    static final int MAX_KEY_LENGTH = 255;
+    static final int FLAG_EXPIRES = 1;
+    static final int TAG_SHIFT = 40;
+    static final long OFFSET_MASK = (1L << TAG_SHIFT) - 1;
+    static final double MAX_LOAD_FACTOR = 0.7;
+
+    private static final RedirectType[] REDIRECT_TYPES = RedirectType.values();
+
+    private final Path path;
+    private final int entryCount;
+    private final long slotCount;
+    private final Instant createdAt;
+    private final ByteBuffer[] index;
+    private final ByteBuffer[] records;
+
+    private RedirectSnapshot(final Path path, final int entryCount, final long slotCount, final Instant createdAt,
+                             final ByteBuffer[] index, final ByteBuffer[] records) {
+        this.path = path;
+        this.entryCount = entryCount;
+        this.slotCount = slotCount;
+        this.createdAt = createdAt;
+        this.index = index;
+        this.records = records;
+    }
+
+    public static RedirectSnapshot open(final Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a redirect snapshot: " + path);
+            }
+            int entryCount = header.getInt(8);
+            long slotCount = header.getInt(12) & 0xFFFFFFFFL;
+            var createdAt = Instant.ofEpochMilli(header.getLong(16));
+            long indexOffset = header.getLong(24);
+            long recordsOffset = header.getLong(32);
+
+            // Mappings stay valid after the channel is closed
+            return new RedirectSnapshot(path, entryCount, slotCount, createdAt,
+                    map(channel, FileChannel.MapMode.READ_ONLY, indexOffset, slotCount * Long.BYTES),
+                    map(channel, FileChannel.MapMode.READ_ONLY, recordsOffset, channel.size() - recordsOffset));
+        }
+    }
+
+    // Returns null when the short code is not in the snapshot
+    public ResolvedUrl find(final String shortCode) {
+        int keyLength = shortCode.length();
+        if (keyLength == 0 || keyLength > MAX_KEY_LENGTH) {
+            return null;
+        }
+
+        long hash = hash(shortCode);
+        long tag = hash >>> TAG_SHIFT;
+        long mask = slotCount - 1;
+        long slot = hash & mask;
+        for (long probe = 0; probe < slotCount; probe++) {
+            long value = getLong(index, slot * Long.BYTES);
+            if (value == 0) {
+                return null;
+            }
+            if (value >>> TAG_SHIFT == tag) {
+                long record = (value & OFFSET_MASK) - 1;
+                if (keyEquals(record, shortCode)) {
+                    return decode(record + 1 + keyLength);
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    // When the exporter started reading the collection, changes from then on are not guaranteed to be included
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    // FNV-1a over the ASCII code units followed by a murmur3 finalizer, the writer hashes keys the same way
+    static long hash(final CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    static long hash(final ByteBuffer buffer, final int position, final int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= buffer.get(position + i) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    static long slotCountFor(final long entryCount) {
+        long minimum = Math.max(16, (long) Math.ceil(entryCount / MAX_LOAD_FACTOR));
+        return Long.highestOneBit(minimum - 1) << 1;
+    }
+
+    static ByteBuffer[] map(final FileChannel channel, final FileChannel.MapMode mode, final long offset,
+                            final long length) throws IOException {
+        int chunks = (int) Math.max(1, (length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        var buffers = new ByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            buffers[i] = channel.map(mode, offset + start, Math.max(0, Math.min(CHUNK_SIZE, length - start)));
+        }
+        return buffers;
+    }
+
+    private boolean keyEquals(final long record, final String shortCode) {
+        var buffer = records[(int) (record >>> CHUNK_SHIFT)];
+        int position = (int) (record & (CHUNK_SIZE - 1));
+        int keyLength = shortCode.length();
+        if ((buffer.get(position) & 0xFF) != keyLength) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (buffer.get(position + 1 + i) != shortCode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ResolvedUrl decode(final long offset) {
+        var buffer = records[(int) (offset >>> CHUNK_SHIFT)];
+        int position = (int) (offset & (CHUNK_SIZE - 1));
+        int flags = buffer.get(position);
+        var redirectType = REDIRECT_TYPES[buffer.get(position + 1)];
+        position += 2;
+
+        LocalDateTime expiresAt = null;
+        if ((flags & FLAG_EXPIRES) != 0) {
+            expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(position)), ZoneOffset.UTC);
+            position += Long.BYTES;
+        }
+
+        int urlLength = buffer.getInt(position);
+        var url = new byte[urlLength];
+        buffer.get(position + Integer.BYTES, url);
+        return new ResolvedUrl(new String(url, StandardCharsets.UTF_8), true, expiresAt, redirectType);
+    }
+
+    private static long getLong(final ByteBuffer[] chunks, final long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & (CHUNK_SIZE - 1)));
+    }
+
+    private static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,66 @@
+package com.carloscavalcanti.urlshortner.service.snapshot;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+// Periodically streams the active mappings into a fresh snapshot file. Only one node needs to export, the others map
+// the shared file; changes made while the export runs are covered by the store replaying from the snapshot time.
+@Component
+@ConditionalOnProperty(name = "app.redirect-store.export.enabled", havingValue = "true")
+@Slf4j
+public class RedirectSnapshotExporter {
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final SnapshotRedirectStore snapshotRedirectStore;
+    private final Path path;
+
+    public RedirectSnapshotExporter(final MongoTemplate mongoTemplate,
+                                    final SnapshotRedirectStore snapshotRedirectStore,
+                                    @Value("${app.redirect-store.path:data/redirect-snapshot.bin}") final Path path) {
+        this.mongoTemplate = mongoTemplate;
+        this.snapshotRedirectStore = snapshotRedirectStore;
+        this.path = path;
+    }
+
+    @Scheduled(fixedDelayString = "${app.redirect-store.export.interval:1h}")
+    public void export() {
+        // Taken before the read starts, so anything the cursor might have missed is newer than the snapshot
+        var createdAt = Instant.now();
+        var query = Query.query(Criteria.where("active").is(true).orOperator(
+                        Criteria.where("expiresAt").is(null),
+                        Criteria.where("expiresAt").gt(LocalDateTime.now())))
+                .with(Sort.by("shortCode"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("shortCode", "originalUrl", "expiresAt", "redirectType");
+
+        try (var mappings = mongoTemplate.stream(query, UrlMapping.class)) {
+            var parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            int written = RedirectSnapshotWriter.write(path, mappings.iterator(), createdAt);
+            log.info("Exported {} mapping(s) to redirect snapshot {}", written, path);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to export redirect snapshot {}", path, e);
+            return;
+        }
+
+        snapshotRedirectStore.reload();
+    }
+}
@@ -0,0 +1,175 @@
+package com.carloscavalcanti.urlshortner.service.snapshot;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+
+import static com.carloscavalcanti.urlshortner.service.snapshot.RedirectSnapshot.*;
+
+// Writes a RedirectSnapshot in two passes so the exporter never holds the collection in memory: records are streamed
+// to a temporary file, then the index is built in a mapped region of the snapshot sized from the final count.
+// The snapshot replaces the target with an atomic rename, so readers only ever see complete files.
+public final class RedirectSnapshotWriter {
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private RedirectSnapshotWriter() {}
+
+    // Mappings are expected in short code order; returns the number of entries written
+    public static int write(final Path target, final Iterator<UrlMapping> mappings, final Instant createdAt)
+            throws IOException {
+        var recordsFile = target.resolveSibling(target.getFileName() + ".records.tmp");
+        var snapshotFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            int entryCount = 0;
+            long recordsLength = 0;
+            try (var out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(recordsFile), OUTPUT_BUFFER_SIZE))) {
+                while (mappings.hasNext()) {
+                    long written = writeRecord(out, mappings.next(), recordsLength);
+                    if (written > 0) {
+                        recordsLength += written;
+                        entryCount++;
+                    }
+                }
+            }
+
+            long slotCount = slotCountFor(entryCount);
+            long recordsOffset = HEADER_SIZE + slotCount * Long.BYTES;
+            try (var snapshot = FileChannel.open(snapshotFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 var records = FileChannel.open(recordsFile, StandardOpenOption.READ)) {
+                writeHeader(snapshot, entryCount, slotCount, createdAt, recordsOffset);
+                buildIndex(snapshot, records, slotCount, recordsLength);
+
+                snapshot.position(recordsOffset);
+                for (long copied = 0; copied < recordsLength; ) {
+                    copied += records.transferTo(copied, recordsLength - copied, snapshot);
+                }
+                snapshot.force(true);
+            }
+
+            Files.move(snapshotFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return entryCount;
+        } finally {
+            Files.deleteIfExists(recordsFile);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    // Returns the bytes written including chunk padding, or 0 when the mapping cannot be stored
+    private static long writeRecord(final DataOutputStream out, final UrlMapping mapping, final long position)
+            throws IOException {
+        var shortCode = mapping.getShortCode();
+        if (shortCode == null || shortCode.isEmpty() || shortCode.length() > MAX_KEY_LENGTH
+                || !isAscii(shortCode) || mapping.getOriginalUrl() == null) {
+            return 0;
+        }
+
+        var url = mapping.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        var expiresAt = mapping.getExpiresAt();
+        long size = 1 + shortCode.length() + 2 + (expiresAt != null ? Long.BYTES : 0) + Integer.BYTES + url.length;
+        if (size > CHUNK_SIZE) {
+            return 0;
+        }
+
+        // A zero key length marks padding, readers never land on it because the index only points at records
+        long padding = 0;
+        long chunkRemaining = CHUNK_SIZE - (position & (CHUNK_SIZE - 1));
+        if (size > chunkRemaining) {
+            padding = chunkRemaining;
+            for (long i = 0; i < padding; i++) {
+                out.write(0);
+            }
+        }
+
+        out.writeByte(shortCode.length());
+        out.writeBytes(shortCode);
+        out.writeByte(expiresAt != null ? FLAG_EXPIRES : 0);
+        out.writeByte(RedirectType.orDefault(mapping.getRedirectType()).ordinal());
+        if (expiresAt != null) {
+            out.writeLong(expiresAt.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        out.writeInt(url.length);
+        out.write(url);
+        return padding + size;
+    }
+
+    private static void writeHeader(final FileChannel snapshot, final int entryCount, final long slotCount,
+                                    final Instant createdAt, final long recordsOffset) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(entryCount)
+                .putInt((int) slotCount)
+                .putLong(createdAt.toEpochMilli())
+                .putLong(HEADER_SIZE)
+                .putLong(recordsOffset)
+                .flip();
+        header.limit(HEADER_SIZE);
+        snapshot.write(header, 0);
+    }
+
+    private static void buildIndex(final FileChannel snapshot, final FileChannel records, final long slotCount,
+                                   final long recordsLength) throws IOException {
+        var index = map(snapshot, FileChannel.MapMode.READ_WRITE, HEADER_SIZE, slotCount * Long.BYTES);
+        var source = map(records, FileChannel.MapMode.READ_ONLY, 0, recordsLength);
+        long mask = slotCount - 1;
+
+        long offset = 0;
+        while (offset < recordsLength) {
+            var chunk = source[(int) (offset >>> CHUNK_SHIFT)];
+            int position = (int) (offset & (CHUNK_SIZE - 1));
+            int keyLength = chunk.get(position) & 0xFF;
+            if (keyLength == 0) {
+                offset = (offset | (CHUNK_SIZE - 1)) + 1;
+                continue;
+            }
+
+            long hash = RedirectSnapshot.hash(chunk, position + 1, keyLength);
+            long slot = hash & mask;
+            while (slotValue(index, slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            long slotOffset = slot * Long.BYTES;
+            index[(int) (slotOffset >>> CHUNK_SHIFT)].putLong((int) (slotOffset & (CHUNK_SIZE - 1)),
+                    (hash >>> TAG_SHIFT) << TAG_SHIFT | (offset + 1));
+
+            int flags = chunk.get(position + 1 + keyLength);
+            int urlLengthAt = position + 1 + keyLength + 2 + ((flags & FLAG_EXPIRES) != 0 ? Long.BYTES : 0);
+            offset += urlLengthAt - position + Integer.BYTES + chunk.getInt(urlLengthAt);
+        }
+
+        for (ByteBuffer buffer : index) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    private static long slotValue(final ByteBuffer[] index, final long slot) {
+        long slotOffset = slot * Long.BYTES;
+        return index[(int) (slotOffset >>> CHUNK_SHIFT)].getLong((int) (slotOffset & (CHUNK_SIZE - 1)));
+    }
+
+    private static boolean isAscii(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package com.carloscavalcanti.urlshortner.service.snapshot;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.carloscavalcanti.urlshortner.service.change.UrlMappingChangeConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Redirect lookups served from the memory-mapped snapshot, overlaid with an in-heap delta segment of the changes seen
+// since it was exported. Opening the store is an mmap, so a node is ready without warming any cache.
+@Component
+@Slf4j
+public class SnapshotRedirectStore implements UrlMappingChangeConsumer {
+
+    // Delta for a short code that was deleted after the snapshot was taken
+    public static final ResolvedUrl REMOVED = new ResolvedUrl(null, false, null);
+
+    private final boolean enabled;
+    private final Path path;
+    private final Duration replayMargin;
+    private final Map<String, Delta> deltas = new ConcurrentHashMap<>();
+    private volatile RedirectSnapshot snapshot;
+    private volatile FileTime loadedModifiedTime;
+
+    public SnapshotRedirectStore(final MeterRegistry meterRegistry,
+                                 @Value("${app.redirect-store.enabled:false}") final boolean enabled,
+                                 @Value("${app.redirect-store.path:data/redirect-snapshot.bin}") final Path path,
+                                 @Value("${app.redirect-store.replay-margin:1m}") final Duration replayMargin) {
+        this.enabled = enabled;
+        this.path = path;
+        this.replayMargin = replayMargin;
+
+        Gauge.builder("redirect.store.snapshot.entries", this, store -> store.snapshot != null
+                        ? store.snapshot.getEntryCount() : 0)
+                .description("Mappings in the loaded redirect snapshot")
+                .register(meterRegistry);
+        Gauge.builder("redirect.store.deltas", deltas, Map::size)
+                .description("Changes applied on top of the redirect snapshot")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        reload();
+    }
+
+    // Picks up a snapshot replaced by the exporter, the previous mapping is released once no lookup references it
+    @Scheduled(fixedDelayString = "${app.redirect-store.reload-interval:30s}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (!Files.exists(path)) {
+                log.debug("No redirect snapshot at {} yet", path);
+                return;
+            }
+            var modified = Files.getLastModifiedTime(path);
+            if (modified.equals(loadedModifiedTime)) {
+                return;
+            }
+
+            var opened = RedirectSnapshot.open(path);
+            snapshot = opened;
+            loadedModifiedTime = modified;
+
+            // Changes the new snapshot already contains are dropped, the margin covers clock skew with the exporter
+            var cutoff = opened.getCreatedAt().minus(replayMargin);
+            deltas.values().removeIf(delta -> delta.changedAt().isBefore(cutoff));
+
+            log.info("Mapped redirect snapshot {} with {} entries taken at {}, {} delta(s) retained",
+                    path, opened.getEntryCount(), opened.getCreatedAt(), deltas.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to load redirect snapshot {}", path, e);
+        }
+    }
+
+    // Returns null when the store does not know the short code; deleted or deactivated codes are not available
+    public ResolvedUrl find(final String shortCode) {
+        if (!enabled) {
+            return null;
+        }
+
+        var delta = deltas.get(shortCode);
+        if (delta != null) {
+            return delta.resolved();
+        }
+        var current = snapshot;
+        return current != null ? current.find(shortCode) : null;
+    }
+
+    // A null resolvedUrl records a deletion; replayed changes older than the current delta are ignored
+    public void applyChange(final String shortCode, final ResolvedUrl resolvedUrl, final Instant changedAt) {
+        var delta = new Delta(resolvedUrl != null ? resolvedUrl : REMOVED, changedAt);
+        deltas.merge(shortCode, delta, (current, next) -> next.changedAt().isBefore(current.changedAt())
+                ? current : next);
+    }
+
+    @Override
+    public void onChange(final UrlMappingChange change) {
+        if (enabled) {
+            applyChange(change.shortCode(), change.resolvedUrl(), change.changedAt());
+        }
+    }
+
+    // Changes since shortly before the snapshot was taken bring it up to date, null when none is loaded
+    @Override
+    public Instant replayFrom() {
+        var current = snapshot;
+        return current != null ? current.getCreatedAt().minus(replayMargin) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private record Delta(ResolvedUrl resolved, Instant changedAt) {
+    }
+}
@@ -3,7 +3,7 @@ package com.carloscavalcanti.urlshortner;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.short-code.permutation-key=42")
 class UrlshortnerApplicationTests {
 
 	@Test
@@ -0,0 +1,48 @@
+package com.carloscavalcanti.urlshortner.config;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickBucketEntryConvertersTest {
+
+    @Test
+    void shouldWriteCompactDocumentAndReadItBack() {
+        // Given
+        var entry = new ClickBucketEntry(1_700_000_000_000L, 42L, new byte[] {(byte) 203, 0, 113, 7});
+
+        // When
+        var document = ClickBucketEntryConverters.Writer.INSTANCE.convert(entry);
+        var read = ClickBucketEntryConverters.Reader.INSTANCE.convert(document);
+
+        // Then
+        assertEquals(new Date(1_700_000_000_000L), document.get("ts"));
+        assertEquals(42L, document.get("ua"));
+        assertArrayEquals(new byte[] {(byte) 203, 0, 113, 7}, ((Binary) document.get("ip")).getData());
+        assertEquals(1_700_000_000_000L, read.timestamp());
+        assertEquals(42L, read.userAgentId());
+        assertFalse(read.hasInlineUserAgent());
+        assertArrayEquals(entry.ipAddress(), read.ipAddress());
+    }
+
+    @Test
+    void shouldReadEntriesWrittenBeforeInterning() {
+        // Given
+        var legacy = new Document("ts", new Date(1_000L))
+                .append("ua", "Mozilla/5.0")
+                .append("ip", "2001:db8::1");
+
+        // When
+        var read = ClickBucketEntryConverters.Reader.INSTANCE.convert(legacy);
+
+        // Then
+        assertEquals(1_000L, read.timestamp());
+        assertEquals("Mozilla/5.0", read.inlineUserAgent());
+        assertEquals(16, read.ipAddress().length);
+    }
+}
@@ -0,0 +1,46 @@
+package com.carloscavalcanti.urlshortner.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpAddressResolverTest {
+
+    private final ClientIpAddressResolver resolver =
+            new ClientIpAddressResolver(List.of("10.0.0.0/8", "192.0.2.10", "fd00::/8"));
+
+    @Test
+    void shouldIgnoreProxyHeadersFromUntrustedPeers() {
+        assertEquals("203.0.113.7", resolver.resolve("198.51.100.1", "198.51.100.2", "203.0.113.7"));
+        assertEquals("203.0.113.7", new ClientIpAddressResolver(List.of())
+                .resolve("198.51.100.1", null, "203.0.113.7"));
+    }
+
+    @Test
+    void shouldTakeTheRightMostUntrustedHop() {
+        // Given a spoofed first hop added by the client, then the client as seen by our edge proxy
+        var forwardedFor = "198.51.100.1, 203.0.113.7, 10.1.2.3";
+
+        // When
+        var clientIp = resolver.resolve(forwardedFor, null, "192.0.2.10");
+
+        // Then
+        assertEquals("203.0.113.7", clientIp);
+        assertEquals("2001:db8::7", resolver.resolve("2001:db8::7, fd12::1", null, "fd00::2"));
+    }
+
+    @Test
+    void shouldFallBackToRealIpOrTheLeftMostProxy() {
+        assertEquals("203.0.113.7", resolver.resolve(null, "203.0.113.7", "10.0.0.1"));
+        assertEquals("10.9.9.9", resolver.resolve("10.9.9.9, 10.1.2.3", null, "10.0.0.1"));
+        assertEquals("10.0.0.1", resolver.resolve(" , ", null, "10.0.0.1"));
+    }
+
+    @Test
+    void shouldRejectInvalidTrustedProxies() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientIpAddressResolver(List.of("proxy.internal")));
+        assertThrows(IllegalArgumentException.class, () -> new ClientIpAddressResolver(List.of("10.0.0.0/33")));
+    }
+}
@@ -0,0 +1,44 @@
+package com.carloscavalcanti.urlshortner.controller;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectCacheHeadersTest {
+
+    private final RedirectCacheHeaders redirectCacheHeaders = new RedirectCacheHeaders(Duration.ofDays(1));
+
+    @Test
+    void shouldNotStoreTemporaryRedirects() {
+        // Given
+        var resolved = new ResolvedUrl("https://www.example.com", true, null, RedirectType.FOUND);
+
+        // When
+        var headers = redirectCacheHeaders.headersFor(resolved, LocalDateTime.now());
+
+        // Then
+        assertEquals("no-store", headers.getCacheControl());
+        assertNull(headers.getETag());
+        assertFalse(redirectCacheHeaders.isNotModified(resolved, "*"));
+    }
+
+    @Test
+    void shouldCapPermanentRedirectLifetimeAtExpiry() {
+        // Given
+        var now = LocalDateTime.now();
+        var resolved = new ResolvedUrl("https://www.example.com", true, now.plusMinutes(10),
+                RedirectType.MOVED_PERMANENTLY);
+
+        // When
+        var headers = redirectCacheHeaders.headersFor(resolved, now);
+
+        // Then
+        assertEquals("max-age=600, public", headers.getCacheControl());
+        assertTrue(redirectCacheHeaders.isNotModified(resolved, headers.getETag()));
+    }
+}
@@ -2,7 +2,6 @@ package com.carloscavalcanti.urlshortner.fixture;
 
 import com.carloscavalcanti.urlshortner.model.UrlMapping;
 
-import java.util.ArrayList;
 import java.util.Set;
 
 public class UrlMappingFixture {
@@ -16,7 +15,6 @@ public class UrlMappingFixture {
                 .createdAt(java.time.LocalDateTime.now())
                 .expiresAt(java.time.LocalDateTime.now().plusDays(30))
                 .clickCount(0L)
-                .active(true)
-                .clicks(new ArrayList<>());
+                .active(true);
     }
 }
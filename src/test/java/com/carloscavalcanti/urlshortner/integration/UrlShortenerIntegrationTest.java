@@ -45,6 +45,8 @@ class UrlShortenerIntegrationTest {
         registry.add("spring.data.mongodb.port", () -> mongoDBContainer.getMappedPort(27017));
         registry.add("spring.data.redis.host", redisContainer::getHost);
         registry.add("spring.data.redis.port", () -> redisContainer.getMappedPort(6379));
+        registry.add("app.clicks.flush-interval", () -> "50ms");
+        registry.add("app.short-code.permutation-key", () -> "42");
     }
 
     @Test
@@ -101,6 +103,9 @@ class UrlShortenerIntegrationTest {
         mockMvc.perform(get("/" + response.getShortCode()))
                 .andExpect(status().isFound());
 
+        // Clicks are persisted asynchronously, wait for the batch workers to flush them
+        awaitTotalClicks(response.getShortCode(), 2);
+
         // When - Get Analytics
         MvcResult analyticsResult = mockMvc.perform(get("/api/analytics/" + response.getShortCode()))
                 .andExpect(status().isOk())
@@ -121,6 +126,38 @@ class UrlShortenerIntegrationTest {
         assertTrue(analytics.isActive());
     }
 
+    @Test
+    void shouldShortenNdjsonBatchWithPerItemResults() throws Exception {
+        // Given
+        String body = "{\"longUrl\": \"https://batch.example.com/1\"}\n"
+                + "{\"longUrl\": \"https://BATCH.example.com/1/\"}\n"
+                + "{\"longUrl\": \"not-a-url\"}\n";
+
+        // When
+        MvcResult asyncResult = mockMvc.perform(post("/api/shorten/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        // Then
+        assertEquals(3, lines.length);
+        BatchShortenResultDTO first = objectMapper.readValue(lines[0], BatchShortenResultDTO.class);
+        BatchShortenResultDTO second = objectMapper.readValue(lines[1], BatchShortenResultDTO.class);
+        BatchShortenResultDTO third = objectMapper.readValue(lines[2], BatchShortenResultDTO.class);
+        assertEquals(BatchShortenResultDTO.Status.CREATED, first.getStatus());
+        assertEquals(first.getShortCode(), second.getShortCode());
+        assertEquals(BatchShortenResultDTO.Status.FAILED, third.getStatus());
+
+        mockMvc.perform(get("/" + first.getShortCode()))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://batch.example.com/1"));
+    }
+
     @Test
     void shouldReturn404ForNonExistentShortCode() throws Exception {
         mockMvc.perform(get("/nonexistent"))
@@ -143,4 +180,16 @@ class UrlShortenerIntegrationTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    private void awaitTotalClicks(final String shortCode, final long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String body = mockMvc.perform(get("/api/analytics/" + shortCode))
+                    .andReturn().getResponse().getContentAsString();
+            if (objectMapper.readValue(body, AnalyticsResponseDTO.class).getTotalClicks() >= expected) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+    }
 }
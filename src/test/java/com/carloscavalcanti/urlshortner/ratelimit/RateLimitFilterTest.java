@@ -0,0 +1,119 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitFilterTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var clusterRateLimiter = new ClusterRateLimiter(stringRedisTemplate, false, Duration.ofMinutes(1));
+        var rateLimiter = new RateLimiter(clusterRateLimiter, meterRegistry, true,
+                0.001, 1, 0, 0.001, 2, 0, 1000, Duration.ofMinutes(10));
+        filter = new RateLimitFilter(rateLimiter, new ClientIpAddressResolver(List.of()),
+                new ObjectMapper().registerModule(new JavaTimeModule()), "X-API-Key");
+    }
+
+    @Test
+    void shouldRejectShortenRequestsOverTheLimitWithRetryAfter() throws Exception {
+        // Given
+        var first = shorten("203.0.113.7");
+        var second = shorten("203.0.113.7");
+
+        // When
+        var firstChain = new MockFilterChain();
+        var secondChain = new MockFilterChain();
+        filter.doFilter(first, new MockHttpServletResponse(), firstChain);
+        var rejected = new MockHttpServletResponse();
+        filter.doFilter(second, rejected, secondChain);
+
+        // Then
+        assertNotNull(firstChain.getRequest());
+        assertNull(secondChain.getRequest());
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER)) >= 1);
+        assertEquals(1.0, meterRegistry.get("rate.limit.rejections")
+                .tag("scope", "shorten").tag("client", "ip").tag("tier", "local").counter().count());
+    }
+
+    @Test
+    void shouldLimitEachClientIpSeparately() throws Exception {
+        // Given
+        filter.doFilter(shorten("203.0.113.7"), new MockHttpServletResponse(), new MockFilterChain());
+
+        // When
+        var chain = new MockFilterChain();
+        var response = new MockHttpServletResponse();
+        filter.doFilter(shorten("198.51.100.1"), response, chain);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void shouldLimitApiKeyAcrossClientIps() throws Exception {
+        // Given
+        var first = shorten("203.0.113.7");
+        first.addHeader("X-API-Key", "key-1");
+        var second = shorten("198.51.100.1");
+        second.addHeader("X-API-Key", "key-1");
+        filter.doFilter(first, new MockHttpServletResponse(), new MockFilterChain());
+
+        // When
+        var response = new MockHttpServletResponse();
+        filter.doFilter(second, response, new MockFilterChain());
+
+        // Then
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void shouldNotLimitAnalyticsRequests() throws Exception {
+        // Given
+        var chain = new MockFilterChain();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            chain = new MockFilterChain();
+            var request = new MockHttpServletRequest("GET", "/api/analytics/abc123");
+            request.setRemoteAddr("203.0.113.7");
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        }
+
+        // Then
+        assertNotNull(chain.getRequest());
+    }
+
+    private MockHttpServletRequest shorten(final String clientIp) {
+        var request = new MockHttpServletRequest("POST", "/api/shorten");
+        request.setRemoteAddr(clientIp);
+        return request;
+    }
+}
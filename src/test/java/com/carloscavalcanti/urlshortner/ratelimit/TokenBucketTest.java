@@ -0,0 +1,60 @@
+package com.carloscavalcanti.urlshortner.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long START = 1_000_000_000L;
+
+    @Test
+    void shouldAllowBurstThenRejectWithTimeUntilNextToken() {
+        // Given
+        var bucket = new TokenBucket(10, 3, START);
+
+        // When
+        long first = bucket.tryAcquire(START);
+        long second = bucket.tryAcquire(START);
+        long third = bucket.tryAcquire(START);
+        long fourth = bucket.tryAcquire(START);
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(0, third);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), fourth);
+    }
+
+    @Test
+    void shouldRefillAtConfiguredRate() {
+        // Given
+        var bucket = new TokenBucket(10, 1, START);
+        bucket.tryAcquire(START);
+
+        // When
+        long tooEarly = bucket.tryAcquire(START + TimeUnit.MILLISECONDS.toNanos(50));
+        long afterInterval = bucket.tryAcquire(START + TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), tooEarly);
+        assertEquals(0, afterInterval);
+    }
+
+    @Test
+    void shouldNotAccumulateMoreThanBurstWhileIdle() {
+        // Given
+        var bucket = new TokenBucket(10, 2, START);
+        long later = START + TimeUnit.SECONDS.toNanos(60);
+
+        // When
+        bucket.tryAcquire(later);
+        bucket.tryAcquire(later);
+        long third = bucket.tryAcquire(later);
+
+        // Then
+        assertTrue(third > 0);
+    }
+}
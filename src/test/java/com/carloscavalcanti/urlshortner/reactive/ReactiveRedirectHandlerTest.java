@@ -0,0 +1,96 @@
+package com.carloscavalcanti.urlshortner.reactive;
+
+import com.carloscavalcanti.urlshortner.controller.ClientIpAddressResolver;
+import com.carloscavalcanti.urlshortner.controller.RedirectCacheHeaders;
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.service.click.ClickTrackingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRedirectHandlerTest {
+
+    @Mock
+    private ReactiveUrlResolver reactiveUrlResolver;
+
+    @Mock
+    private ClickTrackingService clickTrackingService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        var handler = new ReactiveRedirectHandler(reactiveUrlResolver, clickTrackingService,
+                new RedirectCacheHeaders(Duration.ofDays(1)), new ClientIpAddressResolver(List.of()));
+        webTestClient = WebTestClient.bindToRouterFunction(new ReactiveRedirectConfig().redirectRoute(handler))
+                .build();
+    }
+
+    @Test
+    void shouldRedirectAndTrackClick() {
+        // Given
+        when(reactiveUrlResolver.resolve("abc123"))
+                .thenReturn(Mono.just(new ResolvedUrl("https://www.example.com", true, null)));
+
+        // When / Then
+        webTestClient.get().uri("/abc123")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().location("https://www.example.com")
+                .expectHeader().cacheControl(CacheControl.noStore());
+
+        verify(clickTrackingService).tryTrack(argThat(event -> "abc123".equals(event.shortCode())));
+    }
+
+    @Test
+    void shouldUsePermanentRedirectTypeAndAnswerConditionalRequests() {
+        // Given
+        when(reactiveUrlResolver.resolve("perm01")).thenReturn(Mono.just(
+                new ResolvedUrl("https://www.example.com", true, null, RedirectType.PERMANENT_REDIRECT)));
+
+        // When
+        var etag = webTestClient.get().uri("/perm01")
+                .exchange()
+                .expectStatus().isPermanentRedirect()
+                .expectHeader().location("https://www.example.com")
+                .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePublic())
+                .returnResult(Void.class)
+                .getResponseHeaders().getETag();
+
+        // Then
+        webTestClient.get().uri("/perm01")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void shouldReturn404ForUnknownOrInactiveShortCode() {
+        // Given
+        when(reactiveUrlResolver.resolve("missing")).thenReturn(Mono.empty());
+        when(reactiveUrlResolver.resolve("inactive"))
+                .thenReturn(Mono.just(new ResolvedUrl("https://www.example.com", false, null)));
+
+        // When / Then
+        webTestClient.get().uri("/missing").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/inactive").exchange().expectStatus().isNotFound();
+
+        verify(clickTrackingService, never()).tryTrack(any(ClickEvent.class));
+    }
+}
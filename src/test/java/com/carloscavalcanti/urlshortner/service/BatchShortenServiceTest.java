@@ -0,0 +1,130 @@
+package com.carloscavalcanti.urlshortner.service;
+
+import com.carloscavalcanti.urlshortner.dto.BatchShortenResultDTO;
+import com.carloscavalcanti.urlshortner.dto.ShortenUrlRequestDTO;
+import com.carloscavalcanti.urlshortner.model.DedupMatch;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import com.carloscavalcanti.urlshortner.service.dedup.UrlNormalizer;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics;
+import com.carloscavalcanti.urlshortner.service.shortcode.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchShortenServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private UrlMappingRepository urlMappingRepository;
+
+    @Mock
+    private ShortenDedupCache shortenDedupCache;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Mock
+    private ShortCodeFilter shortCodeFilter;
+
+    private final UrlNormalizer urlNormalizer = new UrlNormalizer(true, true, true, true);
+
+    private BatchShortenService batchShortenService;
+
+    @BeforeEach
+    void setUp() {
+        batchShortenService = new BatchShortenService(mongoTemplate, urlMappingRepository, urlNormalizer,
+                shortenDedupCache, shortCodeGenerator, shortCodeFilter,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ShortenerMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(batchShortenService, "baseUrl", "http://localhost:8080");
+        ReflectionTestUtils.setField(batchShortenService, "maxShortCodeAttempts", 3);
+    }
+
+    @Test
+    void shouldDedupWithinBatchAndAgainstStoreWithPerItemErrors() {
+        // Given
+        var existing = new DedupMatch("abc123", "https://www.example.com",
+                urlNormalizer.fingerprint("https://www.example.com"));
+        var requests = Arrays.asList(
+                request("https://new.example.com/a"),
+                request("https://www.example.com"),
+                request("invalid-url"),
+                request("HTTPS://NEW.example.com/a/"),
+                null);
+
+        when(urlMappingRepository.findByOriginalUrlHashInAndActiveTrue(anyList())).thenReturn(List.of(existing));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(shortCodeGenerator.next()).thenReturn("new001");
+
+        // When
+        var results = batchShortenService.shortenBatch(requests, 10);
+
+        // Then
+        assertEquals(5, results.size());
+        assertEquals(BatchShortenResultDTO.Status.CREATED, results.get(0).getStatus());
+        assertEquals("new001", results.get(0).getShortCode());
+        assertEquals(10, results.get(0).getIndex());
+        assertEquals(BatchShortenResultDTO.Status.EXISTING, results.get(1).getStatus());
+        assertEquals("abc123", results.get(1).getShortCode());
+        assertEquals(BatchShortenResultDTO.Status.FAILED, results.get(2).getStatus());
+        assertNotNull(results.get(2).getError());
+        assertEquals(BatchShortenResultDTO.Status.CREATED, results.get(3).getStatus());
+        assertEquals("new001", results.get(3).getShortCode());
+        assertEquals(BatchShortenResultDTO.Status.FAILED, results.get(4).getStatus());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UrlMapping>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        verify(urlMappingRepository, times(1)).findByOriginalUrlHashInAndActiveTrue(anyList());
+        verify(shortCodeFilter).add("new001");
+    }
+
+    @Test
+    void shouldSkipStoreLookupForCachedUrls() {
+        // Given
+        when(shortenDedupCache.get(urlNormalizer.fingerprint("https://www.example.com"))).thenReturn("abc123");
+
+        // When
+        var results = batchShortenService.shortenBatch(List.of(request("https://www.example.com")), 0);
+
+        // Then
+        assertEquals(BatchShortenResultDTO.Status.EXISTING, results.get(0).getStatus());
+        assertEquals("http://localhost:8080/abc123", results.get(0).getShortUrl());
+        verify(urlMappingRepository, never()).findByOriginalUrlHashInAndActiveTrue(any());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(UrlMapping.class));
+    }
+
+    private ShortenUrlRequestDTO request(final String longUrl) {
+        var request = new ShortenUrlRequestDTO();
+        request.setLongUrl(longUrl);
+        return request;
+    }
+}
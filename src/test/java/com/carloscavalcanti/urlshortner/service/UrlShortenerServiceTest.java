@@ -2,25 +2,51 @@ package com.carloscavalcanti.urlshortner.service;
 
 import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTO;
 import com.carloscavalcanti.urlshortner.dto.AnalyticsResponseDTOMapper;
+import com.carloscavalcanti.urlshortner.dto.ClickSeriesDTO;
 import com.carloscavalcanti.urlshortner.dto.ShortenUrlRequestDTO;
 import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTO;
 import com.carloscavalcanti.urlshortner.dto.ShortenUrlResponseDTOMapper;
 import com.carloscavalcanti.urlshortner.fixture.UrlMappingFixture;
 import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingSummary;
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import com.carloscavalcanti.urlshortner.model.ClickInfo;
+import com.carloscavalcanti.urlshortner.model.DedupMatch;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
 import com.carloscavalcanti.urlshortner.repository.UrlMappingRepository;
+import com.carloscavalcanti.urlshortner.service.analytics.ClickAnalyticsService;
+import com.carloscavalcanti.urlshortner.service.cache.ShortCodeFilter;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.click.ClickTrackingService;
+import com.carloscavalcanti.urlshortner.service.click.StripedClickCounter;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import com.carloscavalcanti.urlshortner.service.dedup.UrlNormalizer;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.RedirectOutcome;
+import com.carloscavalcanti.urlshortner.service.metrics.ShortenerMetrics.ShortenOutcome;
+import com.carloscavalcanti.urlshortner.service.shortcode.ShortCodeGenerator;
+import com.carloscavalcanti.urlshortner.service.snapshot.SnapshotRedirectStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,19 +55,58 @@ class UrlShortenerServiceTest {
     @Mock
     private UrlMappingRepository urlMappingRepository;
 
+    @Mock
+    private ClickAnalyticsService clickAnalyticsService;
+
     @Mock
     private AnalyticsResponseDTOMapper analyticsMapper;
 
     @Mock
     private ShortenUrlResponseDTOMapper shortenMapper;
 
+    @Mock
+    private ClickTrackingService clickTrackingService;
+
+    @Mock
+    private UrlResolutionCache urlResolutionCache;
+
+    @Mock
+    private ShortCodeFilter shortCodeFilter;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Mock
+    private ShortenDedupCache shortenDedupCache;
+
+    @Mock
+    private StripedClickCounter stripedClickCounter;
+
+    @Mock
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Mock
+    private ShortenerMetrics shortenerMetrics;
+
+    @Mock
+    private SnapshotRedirectStore snapshotRedirectStore;
+
+    @Spy
+    private UrlNormalizer urlNormalizer = new UrlNormalizer(true, true, true, true);
+
     @InjectMocks
     private UrlShortenerService urlShortenerService;
 
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(urlShortenerService, "baseUrl", "http://localhost:8080");
-        ReflectionTestUtils.setField(urlShortenerService, "shortCodeLength", 6);
+        ReflectionTestUtils.setField(urlShortenerService, "maxShortCodeAttempts", 3);
+    }
+
+    // Makes the mocked cache behave as a permanent miss so lookups reach the repository
+    private void stubResolutionCacheMiss() {
+        when(urlResolutionCache.get(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Optional<ResolvedUrl>>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -63,9 +128,9 @@ class UrlShortenerServiceTest {
                 .shortCode("abc123")
                 .build();
 
-        when(urlMappingRepository.findByOriginalUrl(originalUrl)).thenReturn(Optional.empty());
-        when(urlMappingRepository.existsByShortCode(anyString())).thenReturn(false);
-        when(urlMappingRepository.save(any(UrlMapping.class))).thenReturn(savedMapping);
+        when(urlMappingRepository.findFirstByOriginalUrlHashAndActiveTrue(anyString())).thenReturn(Optional.empty());
+        when(shortCodeGenerator.next()).thenReturn("abc123");
+        when(urlMappingRepository.insert(any(UrlMapping.class))).thenReturn(savedMapping);
         when(shortenMapper.toDTO(any(UrlMapping.class), anyString())).thenReturn(expectedResponse);
 
         // When
@@ -78,10 +143,52 @@ class UrlShortenerServiceTest {
         assertNotNull(response.getShortCode());
         assertEquals("abc123", response.getShortCode());
 
-        verify(urlMappingRepository).save(any(UrlMapping.class));
+        verify(urlMappingRepository).insert(any(UrlMapping.class));
+        verify(shortCodeFilter).add("abc123");
         verify(shortenMapper).toDTO(any(UrlMapping.class), eq("http://localhost:8080"));
     }
 
+    @Test
+    void shouldRetryWithNextShortCodeOnDuplicateKey() {
+        // Given
+        var request = new ShortenUrlRequestDTO();
+        request.setLongUrl("https://www.example.com");
+
+        when(urlMappingRepository.findFirstByOriginalUrlHashAndActiveTrue(anyString())).thenReturn(Optional.empty());
+        when(shortCodeGenerator.next()).thenReturn("taken1", "free22");
+        when(urlMappingRepository.insert(any(UrlMapping.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        urlShortenerService.shortenUrl(request);
+
+        // Then
+        verify(urlMappingRepository, times(2)).insert(any(UrlMapping.class));
+        verify(shortCodeFilter).add("free22");
+        verify(shortenMapper).toDTO(argThat(mapping -> "free22".equals(mapping.getShortCode())), anyString());
+        verify(shortenerMetrics).recordCodeAttempts(2);
+        verify(shortenerMetrics).recordShorten(eq(ShortenOutcome.CREATED), anyLong());
+    }
+
+    @Test
+    void shouldFailAfterMaxShortCodeAttempts() {
+        // Given
+        var request = new ShortenUrlRequestDTO();
+        request.setLongUrl("https://www.example.com");
+
+        when(urlMappingRepository.findFirstByOriginalUrlHashAndActiveTrue(anyString())).thenReturn(Optional.empty());
+        when(shortCodeGenerator.next()).thenReturn("taken1");
+        when(urlMappingRepository.insert(any(UrlMapping.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> urlShortenerService.shortenUrl(request));
+        verify(urlMappingRepository, times(3)).insert(any(UrlMapping.class));
+        verify(shortCodeFilter, never()).add(anyString());
+        verify(shortenerMetrics).recordShorten(eq(ShortenOutcome.FAILED), anyLong());
+    }
+
     @Test
     void shouldReturnExistingShortCodeForDuplicateUrl() {
         // Given
@@ -91,8 +198,7 @@ class UrlShortenerServiceTest {
         ShortenUrlRequestDTO request = new ShortenUrlRequestDTO();
         request.setLongUrl(originalUrl);
 
-//        UrlMapping existingMapping = new UrlMapping(existingShortCode, originalUrl);
-        var existingMapping = UrlMappingFixture.createUrlMapping().build();
+        var existingMatch = new DedupMatch(existingShortCode, originalUrl, urlNormalizer.fingerprint(originalUrl));
 
         ShortenUrlResponseDTO expectedResponse = ShortenUrlResponseDTO.builder()
                 .shortUrl("http://localhost:8080/" + existingShortCode)
@@ -100,8 +206,10 @@ class UrlShortenerServiceTest {
                 .shortCode(existingShortCode)
                 .build();
 
-        when(urlMappingRepository.findByOriginalUrl(originalUrl)).thenReturn(Optional.of(existingMapping));
-        when(shortenMapper.toDTO(existingMapping, "http://localhost:8080")).thenReturn(expectedResponse);
+        when(urlMappingRepository.findFirstByOriginalUrlHashAndActiveTrue(urlNormalizer.fingerprint(originalUrl)))
+                .thenReturn(Optional.of(existingMatch));
+        when(shortenMapper.toDTO(argThat(mapping -> existingShortCode.equals(mapping.getShortCode())),
+                eq("http://localhost:8080"))).thenReturn(expectedResponse);
 
         // When
         ShortenUrlResponseDTO response = urlShortenerService.shortenUrl(request);
@@ -112,8 +220,25 @@ class UrlShortenerServiceTest {
         assertEquals(existingShortCode, response.getShortCode());
         assertEquals("http://localhost:8080/" + existingShortCode, response.getShortUrl());
 
-        verify(urlMappingRepository, never()).save(any(UrlMapping.class));
-        verify(shortenMapper).toDTO(existingMapping, "http://localhost:8080");
+        verify(urlMappingRepository, never()).insert(any(UrlMapping.class));
+        verify(shortenDedupCache).put(urlNormalizer.fingerprint(originalUrl), existingShortCode);
+    }
+
+    @Test
+    void shouldReturnCachedShortCodeForEquivalentUrl() {
+        // Given
+        var request = new ShortenUrlRequestDTO();
+        request.setLongUrl("HTTPS://WWW.Example.com:443/");
+
+        when(shortenDedupCache.get(urlNormalizer.fingerprint("https://www.example.com"))).thenReturn("abc123");
+
+        // When
+        urlShortenerService.shortenUrl(request);
+
+        // Then
+        verify(urlMappingRepository, never()).findFirstByOriginalUrlHashAndActiveTrue(anyString());
+        verify(urlMappingRepository, never()).insert(any(UrlMapping.class));
+        verify(shortenMapper).toDTO(argThat(mapping -> "abc123".equals(mapping.getShortCode())), anyString());
     }
 
     @Test
@@ -126,29 +251,117 @@ class UrlShortenerServiceTest {
 
         var mapping = UrlMappingFixture.createUrlMapping().build();
 
-        when(urlMappingRepository.findByShortCode(shortCode)).thenReturn(Optional.of(mapping));
-        when(urlMappingRepository.save(any(UrlMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(shortCodeFilter.mightExist(shortCode)).thenReturn(true);
+        stubResolutionCacheMiss();
+        when(urlMappingRepository.findResolvedUrlByShortCode(shortCode))
+                .thenReturn(Optional.of(ResolvedUrl.from(mapping)));
 
         // When
-        String result = urlShortenerService.redirectAndTrack(shortCode, userAgent, ipAddress);
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, userAgent, ipAddress);
 
         // Then
-        assertEquals(originalUrl, result);
-        verify(urlMappingRepository).save(any(UrlMapping.class));
+        assertEquals(originalUrl, result.originalUrl());
+        verify(clickTrackingService).track(argThat(event -> shortCode.equals(event.shortCode())
+                && userAgent.equals(event.userAgent())
+                && ipAddress.equals(event.ipAddress())));
+        verify(urlMappingRepository, never()).insert(any(UrlMapping.class));
+    }
+
+    @Test
+    void shouldRedirectFromResolutionCacheWithoutRepositoryLookup() {
+        // Given
+        String shortCode = "abc123";
+        String originalUrl = "https://www.example.com";
+        when(shortCodeFilter.mightExist(shortCode)).thenReturn(true);
+        when(urlResolutionCache.get(eq(shortCode), any()))
+                .thenReturn(Optional.of(new ResolvedUrl(originalUrl, true, null)));
+
+        // When
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+
+        // Then
+        assertEquals(originalUrl, result.originalUrl());
+        verify(urlMappingRepository, never()).findResolvedUrlByShortCode(anyString());
+    }
+
+    @Test
+    void shouldReturnNullForExpiredShortCode() {
+        // Given
+        String shortCode = "abc123";
+        when(shortCodeFilter.mightExist(shortCode)).thenReturn(true);
+        when(urlResolutionCache.get(eq(shortCode), any())).thenReturn(Optional.of(
+                new ResolvedUrl("https://www.example.com", true, LocalDateTime.now().minusMinutes(1))));
+
+        // When
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+
+        // Then
+        assertNull(result);
+        verify(clickTrackingService, never()).track(any(ClickEvent.class));
     }
 
     @Test
     void shouldReturnNullForNonExistentShortCode() {
         // Given
         String shortCode = "nonexistent";
-        when(urlMappingRepository.findByShortCode(shortCode)).thenReturn(Optional.empty());
+        when(shortCodeFilter.mightExist(shortCode)).thenReturn(true);
+        stubResolutionCacheMiss();
+        when(urlMappingRepository.findResolvedUrlByShortCode(shortCode)).thenReturn(Optional.empty());
+
+        // When
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+
+        // Then
+        assertNull(result);
+        verify(urlMappingRepository, never()).insert(any(UrlMapping.class));
+        verify(clickTrackingService, never()).track(any(ClickEvent.class));
+        verify(shortCodeFilter).recordMissing(shortCode);
+    }
+
+    @Test
+    void shouldRejectUnknownShortCodeWithoutDatabaseLookup() {
+        // Given
+        String shortCode = "zzzzzz";
+        when(shortCodeFilter.mightExist(shortCode)).thenReturn(false);
 
         // When
-        String result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
 
         // Then
         assertNull(result);
-        verify(urlMappingRepository, never()).save(any(UrlMapping.class));
+        verifyNoInteractions(urlResolutionCache, urlMappingRepository, clickTrackingService);
+        verify(shortenerMetrics).recordRedirect(eq(RedirectOutcome.FILTERED), anyLong());
+    }
+
+    @Test
+    void shouldRedirectFromSnapshotStoreWithoutFilterOrCache() {
+        // Given
+        String shortCode = "abc123";
+        var resolved = new ResolvedUrl("https://www.example.com", true, null);
+        when(snapshotRedirectStore.find(shortCode)).thenReturn(resolved);
+
+        // When
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+
+        // Then
+        assertEquals(resolved, result);
+        verifyNoInteractions(shortCodeFilter, urlResolutionCache, urlMappingRepository);
+        verify(clickTrackingService).track(argThat(event -> shortCode.equals(event.shortCode())));
+    }
+
+    @Test
+    void shouldNotRedirectCodeRemovedSinceSnapshot() {
+        // Given
+        String shortCode = "abc123";
+        when(snapshotRedirectStore.find(shortCode)).thenReturn(SnapshotRedirectStore.REMOVED);
+
+        // When
+        ResolvedUrl result = urlShortenerService.redirectAndTrack(shortCode, "userAgent", "ip");
+
+        // Then
+        assertNull(result);
+        verifyNoInteractions(urlResolutionCache, urlMappingRepository, clickTrackingService);
+        verify(shortenerMetrics).recordRedirect(eq(RedirectOutcome.UNAVAILABLE), anyLong());
     }
 
     @Test
@@ -156,13 +369,7 @@ class UrlShortenerServiceTest {
         // Given
         String shortCode = "abc123";
         String originalUrl = "https://www.example.com";
-//        UrlMapping mapping = new UrlMapping(shortCode, originalUrl);
-        var mapping = UrlMapping.builder()
-                .shortCode(shortCode)
-                .originalUrl(originalUrl)
-                .build();
-
-        mapping.setClickCount(5L);
+        var summary = new UrlMappingSummary(shortCode, originalUrl, 5L, LocalDateTime.now(), true);
 
         var expectedResponse = AnalyticsResponseDTO.builder()
                 .shortCode(shortCode)
@@ -171,8 +378,15 @@ class UrlShortenerServiceTest {
                 .active(true)
                 .build();
 
-        when(urlMappingRepository.findByShortCode(shortCode)).thenReturn(Optional.of(mapping));
-        when(analyticsMapper.toDTO(mapping)).thenReturn(expectedResponse);
+        var recentClicks = List.of(new ClickInfo(LocalDateTime.now(), "Mozilla/5.0", "192.168.1.1"));
+        var series = new ClickSeriesDTO(RollupGranularity.HOUR, null, null, 1, 1L, List.of(), List.of());
+
+        when(urlMappingRepository.findSummaryByShortCode(shortCode)).thenReturn(Optional.of(summary));
+        when(stripedClickCounter.getPendingCount(shortCode)).thenReturn(2L);
+        when(uniqueVisitorCounter.countAllTime(shortCode)).thenReturn(3L);
+        when(clickAnalyticsService.getSeries(shortCode, null, null, RollupGranularity.HOUR)).thenReturn(series);
+        when(clickAnalyticsService.getRecentClicks(shortCode)).thenReturn(recentClicks);
+        when(analyticsMapper.toDTO(summary, 7L, 3L, recentClicks, series)).thenReturn(expectedResponse);
 
         // When
         AnalyticsResponseDTO response = urlShortenerService.getAnalytics(shortCode);
@@ -184,19 +398,20 @@ class UrlShortenerServiceTest {
         assertEquals(5L, response.getTotalClicks());
         assertTrue(response.isActive());
 
-        verify(analyticsMapper).toDTO(mapping);
+        verify(analyticsMapper).toDTO(summary, 7L, 3L, recentClicks, series);
     }
 
     @Test
     void shouldReturnNullAnalyticsForNonExistentShortCode() {
         // Given
         String shortCode = "nonexistent";
-        when(urlMappingRepository.findByShortCode(shortCode)).thenReturn(Optional.empty());
+        when(urlMappingRepository.findSummaryByShortCode(shortCode)).thenReturn(Optional.empty());
 
         // When
         AnalyticsResponseDTO response = urlShortenerService.getAnalytics(shortCode);
 
         // Then
         assertNull(response);
+        verifyNoInteractions(clickAnalyticsService);
     }
 }
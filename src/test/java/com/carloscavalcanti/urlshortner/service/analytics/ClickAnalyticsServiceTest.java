@@ -0,0 +1,154 @@
+package com.carloscavalcanti.urlshortner.service.analytics;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.click.UserAgentDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickAnalyticsServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Mock
+    private UserAgentDictionary userAgentDictionary;
+
+    private ClickAnalyticsService clickAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        clickAnalyticsService = new ClickAnalyticsService(mongoTemplate, uniqueVisitorCounter, userAgentDictionary,
+                100, 48, 1);
+    }
+
+    @Test
+    void shouldDecodeRecentClicksNewestFirst() {
+        // Given
+        var bucket = ClickBucket.builder()
+                .shortCode("abc123")
+                .clicks(List.of(
+                        new ClickBucketEntry(1_000L, 0L, "curl/8.0", new byte[] {10, 0, 0, 1}),
+                        new ClickBucketEntry(2_000L, 42L, new byte[] {(byte) 203, 0, 113, 7})))
+                .build();
+        when(mongoTemplate.stream(any(Query.class), eq(ClickBucket.class))).thenReturn(Stream.of(bucket));
+        when(userAgentDictionary.resolveAll(List.of(42L, 0L))).thenReturn(Map.of(42L, "Mozilla/5.0"));
+
+        // When
+        var recentClicks = clickAnalyticsService.getRecentClicks("abc123");
+
+        // Then
+        assertEquals(2, recentClicks.size());
+        assertEquals("Mozilla/5.0", recentClicks.get(0).getUserAgent());
+        assertEquals("203.0.113.7", recentClicks.get(0).getIpAddress());
+        assertEquals("curl/8.0", recentClicks.get(1).getUserAgent());
+        assertEquals("10.0.0.1", recentClicks.get(1).getIpAddress());
+    }
+
+    @Test
+    void shouldBuildDenseSeriesFromRollups() {
+        // Given
+        var firefox = "Mozilla/5.0 Firefox/121.0";
+        when(mongoTemplate.find(any(Query.class), eq(ClickRollup.class))).thenReturn(List.of(
+                rollup(FROM.plusHours(1), 3, Map.of(ClickRollup.encodeUserAgentKey(firefox), 2L, "curl", 1L)),
+                rollup(FROM.plusHours(3), 2, Map.of(ClickRollup.encodeUserAgentKey(firefox), 2L))));
+        when(uniqueVisitorCounter.countPerWindow(eq("abc123"), eq(RollupGranularity.HOUR), anyList()))
+                .thenReturn(List.of(0L, 2L, 0L, 1L));
+        when(uniqueVisitorCounter.countRange("abc123", RollupGranularity.HOUR, FROM, FROM.plusHours(4)))
+                .thenReturn(2L);
+
+        // When
+        var series = clickAnalyticsService.getSeries("abc123", FROM, FROM.plusHours(4), RollupGranularity.HOUR);
+
+        // Then
+        assertEquals(4, series.points().size());
+        assertEquals(0, series.points().get(0).clicks());
+        assertEquals(3, series.points().get(1).clicks());
+        assertEquals(2L, series.points().get(1).uniqueVisitors());
+        assertEquals(5, series.clicks());
+        assertEquals(2L, series.uniqueVisitors());
+        assertEquals(1, series.topUserAgents().size());
+        assertEquals(firefox, series.topUserAgents().get(0).userAgent());
+        assertEquals(4, series.topUserAgents().get(0).clicks());
+    }
+
+    @Test
+    void shouldOmitPerPointUniquesForMinuteSeries() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(ClickRollup.class))).thenReturn(List.of());
+        when(uniqueVisitorCounter.countPerWindow(eq("abc123"), eq(RollupGranularity.MINUTE), anyList()))
+                .thenReturn(List.of());
+
+        // When
+        var series = clickAnalyticsService.getSeries("abc123", FROM, FROM.plusMinutes(5), RollupGranularity.MINUTE);
+
+        // Then
+        assertEquals(5, series.points().size());
+        assertNull(series.points().get(0).uniqueVisitors());
+    }
+
+    @Test
+    void shouldRejectRangeWithTooManyPoints() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> clickAnalyticsService.getSeries(
+                "abc123", FROM, FROM.plusDays(3), RollupGranularity.HOUR));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void shouldRejectInvertedRange() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> clickAnalyticsService.getSeries(
+                "abc123", FROM, FROM.minusHours(1), RollupGranularity.HOUR));
+    }
+
+    @Test
+    void shouldRoundTripUserAgentKeys() {
+        // Given
+        var userAgent = "$Mozilla/5.0 (X11; Linux x86_64) Chrome/120.0.0.0";
+
+        // When
+        var key = ClickRollup.encodeUserAgentKey(userAgent);
+
+        // Then
+        assertFalse(key.contains("."));
+        assertFalse(key.startsWith("$"));
+        assertEquals(userAgent, ClickRollup.decodeUserAgentKey(key));
+    }
+
+    private ClickRollup rollup(final LocalDateTime bucketStart, final long count,
+                               final Map<String, Long> userAgents) {
+        return ClickRollup.builder()
+                .shortCode("abc123")
+                .granularity(RollupGranularity.HOUR)
+                .bucketStart(bucketStart)
+                .count(count)
+                .userAgents(userAgents)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void shouldAlwaysContainAddedValues() {
+        // Given
+        var filter = new BloomFilter(10_000, 0.01);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("code" + i));
+        }
+        assertEquals(10_000, filter.getInsertions());
+    }
+
+    @Test
+    void shouldKeepFalsePositiveRateNearConfiguredTarget() {
+        // Given
+        var filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives / 100_000.0 < 0.02, "observed false-positive rate too high: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    void shouldRejectEverythingWhenEmpty() {
+        var filter = new BloomFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain("abc123"));
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+}
@@ -0,0 +1,60 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmupTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UrlResolutionCache urlResolutionCache;
+
+    @Test
+    void shouldPreloadMostClickedMappings() {
+        // Given
+        var warmup = new CacheWarmup(mongoTemplate, urlResolutionCache, WarmupSource.TOP, 100,
+                Duration.ofSeconds(5), Duration.ofHours(24));
+        var hot = UrlMapping.builder().shortCode("abc123").originalUrl("https://www.example.com").build();
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenReturn(List.of(hot))
+                .thenReturn(List.of(hot));
+
+        // When
+        warmup.run(null);
+
+        // Then
+        verify(urlResolutionCache).putLocal("abc123", new ResolvedUrl("https://www.example.com", true, null));
+    }
+
+    @Test
+    void shouldNotFailStartupWhenWarmupQueryFails() {
+        // Given
+        var warmup = new CacheWarmup(mongoTemplate, urlResolutionCache, WarmupSource.TOP, 100,
+                Duration.ofSeconds(5), Duration.ofHours(24));
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenThrow(new QueryTimeoutException("operation exceeded time limit"));
+
+        // When
+        warmup.run(null);
+
+        // Then
+        verifyNoInteractions(urlResolutionCache);
+    }
+}
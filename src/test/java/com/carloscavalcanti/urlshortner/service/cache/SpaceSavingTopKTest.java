@@ -0,0 +1,48 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTopKTest {
+
+    @Test
+    void shouldFindHeavyHittersInSkewedStream() {
+        // Given
+        var topK = new SpaceSavingTopK(50);
+        var random = new Random(42);
+
+        // When - three hot codes take ~60% of 100k clicks spread over 10k codes
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            String code = roll < 30 ? "hot1" : roll < 50 ? "hot2" : roll < 60 ? "hot3" : "c" + random.nextInt(10_000);
+            topK.offer(code, 1);
+        }
+
+        // Then
+        var top = topK.top(3);
+        assertEquals("hot1", top.get(0).key());
+        assertEquals("hot2", top.get(1).key());
+        assertEquals("hot3", top.get(2).key());
+        assertTrue(top.get(0).guaranteedCount() <= 30_000 * 1.05);
+        assertTrue(top.get(0).count() >= top.get(0).guaranteedCount());
+        assertEquals(50, topK.size());
+    }
+
+    @Test
+    void shouldHalveCountsOnDecay() {
+        // Given
+        var topK = new SpaceSavingTopK(10);
+        topK.offer("abc123", 100);
+        topK.offer("xyz789", 1);
+
+        // When
+        topK.decay();
+
+        // Then
+        assertEquals(1, topK.size());
+        assertEquals(50, topK.top(1).get(0).count());
+    }
+}
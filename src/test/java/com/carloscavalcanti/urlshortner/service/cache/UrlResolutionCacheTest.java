@@ -0,0 +1,113 @@
+package com.carloscavalcanti.urlshortner.service.cache;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UrlResolutionCacheTest {
+
+    @Mock
+    private RedisTemplate<String, ResolvedUrl> resolvedUrlRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, ResolvedUrl> valueOperations;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UrlResolutionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(resolvedUrlRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cache = new UrlResolutionCache(resolvedUrlRedisTemplate, stringRedisTemplate, meterRegistry,
+                100, Duration.ofMinutes(5), Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldLoadOnceAndServeSubsequentLookupsLocally() {
+        // Given
+        var resolved = new ResolvedUrl("https://www.example.com", true, null);
+        var loads = new AtomicInteger();
+
+        // When
+        cache.get("abc123", code -> {
+            loads.incrementAndGet();
+            return Optional.of(resolved);
+        });
+        var second = cache.get("abc123", code -> Optional.empty());
+
+        // Then
+        assertEquals(Optional.of(resolved), second);
+        assertEquals(1, loads.get());
+        verify(valueOperations).set(eq("url-resolution:abc123"), eq(resolved), any(Duration.class));
+        assertEquals(1.0, meterRegistry.get("url.resolution.cache.requests")
+                .tag("tier", "local").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("url.resolution.lookup")
+                .tag("tier", "database").tag("result", "hit").timer().count());
+        assertEquals(1, meterRegistry.get("url.resolution.lookup")
+                .tag("tier", "local").tag("result", "hit").timer().count());
+    }
+
+    @Test
+    void shouldFallBackToLoaderWhenRedisIsUnavailable() {
+        // Given
+        var resolved = new ResolvedUrl("https://www.example.com", true, null);
+        when(valueOperations.get(anyString())).thenThrow(new IllegalStateException("connection refused"));
+
+        // When
+        var result = cache.get("abc123", code -> Optional.of(resolved));
+
+        // Then
+        assertEquals(Optional.of(resolved), result);
+    }
+
+    @Test
+    void shouldEvictLocalEntryOnInvalidationMessage() {
+        // Given
+        var resolved = new ResolvedUrl("https://www.example.com", true, null);
+        cache.put("abc123", resolved);
+
+        // When
+        cache.invalidateLocal("abc123");
+        var result = cache.get("abc123", code -> Optional.empty());
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void shouldServePinnedEntriesUntilInvalidated() {
+        // Given
+        var resolved = new ResolvedUrl("https://www.example.com", true, null);
+        cache.pin("abc123", resolved);
+
+        // When
+        var hit = cache.get("abc123", code -> Optional.empty());
+        cache.invalidateLocal("abc123");
+
+        // Then
+        assertEquals(Optional.of(resolved), hit);
+        assertFalse(cache.isPinned("abc123"));
+        verifyNoInteractions(valueOperations);
+    }
+}
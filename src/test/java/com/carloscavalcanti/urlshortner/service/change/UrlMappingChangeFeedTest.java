@@ -0,0 +1,168 @@
+package com.carloscavalcanti.urlshortner.service.change;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UrlMappingChangeFeedTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private final List<UrlMappingChange> received = new ArrayList<>();
+    private Path checkpointPath;
+
+    @BeforeEach
+    void setUp() {
+        checkpointPath = directory.resolve("url-mappings.checkpoint");
+    }
+
+    @Test
+    void shouldDeliverPolledChangesOnceAndCheckpointTheLatest() throws Exception {
+        // Given
+        var feed = feed(List.of(received::add));
+        feed.start();
+        var created = LocalDateTime.now().plusSeconds(1);
+        var deactivated = LocalDateTime.now().plusSeconds(2);
+        var inserted = mapping("abc123", created, created, true);
+        var updated = mapping("def456", created.minusDays(1), deactivated, false);
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenReturn(List.of(inserted, updated))
+                .thenReturn(List.of(inserted, updated));
+
+        // When
+        feed.tick();
+        feed.tick();
+
+        // Then
+        assertEquals(UrlMappingChangeFeed.Mode.POLLING, feed.getMode());
+        assertEquals(2, received.size());
+        assertEquals(UrlMappingChange.Type.INSERTED, received.get(0).type());
+        assertEquals("abc123", received.get(0).shortCode());
+        assertEquals(UrlMappingChange.Type.UPDATED, received.get(1).type());
+        assertFalse(received.get(1).resolvedUrl().isAvailable());
+        assertTrue(Files.readString(checkpointPath).contains("changedAt"));
+    }
+
+    @Test
+    void shouldKeepDeliveringWhenAConsumerFails() {
+        // Given
+        var now = LocalDateTime.now();
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenReturn(List.of(mapping("abc123", now, now, true)));
+        UrlMappingChangeConsumer failing = change -> {
+            throw new IllegalStateException("boom");
+        };
+        var feed = feed(List.of(failing, received::add));
+        feed.start();
+
+        // When
+        feed.tick();
+
+        // Then
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void shouldResumeFromTheEarliestChangeAConsumerNeeds() {
+        // Given
+        var replayFrom = Instant.now().minus(Duration.ofMinutes(10));
+        var consumer = new UrlMappingChangeConsumer() {
+            @Override
+            public void onChange(final UrlMappingChange change) {
+                received.add(change);
+            }
+
+            @Override
+            public Instant replayFrom() {
+                return replayFrom;
+            }
+        };
+        var replayed = mapping("abc123", LocalDateTime.now().minusMinutes(5), LocalDateTime.now().minusMinutes(5),
+                true);
+        var query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(UrlMapping.class))).thenReturn(List.of(replayed));
+        var feed = feed(List.of(consumer));
+
+        // When
+        feed.start();
+        feed.tick();
+
+        // Then
+        var since = query.getValue().getQueryObject().get("updatedAt", Document.class).get("$gt", LocalDateTime.class);
+        assertEquals(LocalDateTime.ofInstant(replayFrom.minusSeconds(5), ZoneId.systemDefault()), since);
+        assertEquals(List.of("abc123"), received.stream().map(UrlMappingChange::shortCode).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldResolveDeletesWithoutPreImagesFromTheDocumentKey() {
+        // Given
+        var feed = feed(List.of(received::add));
+        ChangeStreamDocument<Document> event = mock(ChangeStreamDocument.class);
+        when(event.getOperationType()).thenReturn(OperationType.DELETE);
+        when(event.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonString("abc123")));
+        when(event.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString("token")));
+        Message<ChangeStreamDocument<Document>, UrlMapping> message = mock(Message.class);
+        when(message.getRaw()).thenReturn(event);
+
+        // When
+        feed.onStreamEvent(message);
+
+        // Then
+        assertEquals(1, received.size());
+        assertEquals(UrlMappingChange.Type.DELETED, received.get(0).type());
+        assertEquals("abc123", received.get(0).shortCode());
+        assertNull(received.get(0).resolvedUrl());
+    }
+
+    private UrlMappingChangeFeed feed(final List<UrlMappingChangeConsumer> consumers) {
+        return new UrlMappingChangeFeed(mongoTemplate, consumers, new SimpleMeterRegistry(), false, checkpointPath,
+                Duration.ofSeconds(5), 500);
+    }
+
+    private static UrlMapping mapping(final String shortCode, final LocalDateTime createdAt,
+                                      final LocalDateTime updatedAt, final boolean active) {
+        return UrlMapping.builder()
+                .shortCode(shortCode)
+                .originalUrl("https://www.example.com/" + shortCode)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .active(active)
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAggregatorTest {
+
+    private final List<Map<String, Long>> flushed = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldFlushOneDeltaPerShortCode() {
+        // Given
+        var aggregator = new ClickAggregator(List.of(flushed::add), meterRegistry, 100);
+        for (int i = 0; i < 1000; i++) {
+            aggregator.record("abc123");
+        }
+        aggregator.record("xyz789");
+
+        // When
+        aggregator.flush();
+        aggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of("abc123", 1000L, "xyz789", 1L)), flushed);
+        assertEquals(1, meterRegistry.get("clicks.persist").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldNotLoseClicksRecordedDuringFlushes() throws Exception {
+        // Given
+        Map<String, Long> totals = new ConcurrentHashMap<>();
+        var aggregator = new ClickAggregator(List.of(counts ->
+                counts.forEach((shortCode, count) -> totals.merge(shortCode, count, Long::sum))), meterRegistry, 100);
+        int threads = 8;
+        int clicksPerThread = 50_000;
+        var done = new CountDownLatch(threads);
+        var recording = new AtomicBoolean(true);
+
+        // When
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < clicksPerThread; i++) {
+                    aggregator.record(i % 2 == 0 ? "hot" : "code" + (i % 100));
+                }
+                done.countDown();
+            });
+        }
+        var flusher = Thread.ofPlatform().start(() -> {
+            while (recording.get()) {
+                aggregator.flush();
+                LockSupport.parkNanos(1_000_000);
+            }
+        });
+        done.await();
+        recording.set(false);
+        flusher.join();
+        aggregator.flush();
+        aggregator.flush();
+
+        // Then
+        assertEquals((long) threads * clicksPerThread, totals.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals((long) threads * clicksPerThread / 2, totals.get("hot"));
+    }
+
+    @Test
+    void shouldEvictCodesThatStayIdle() {
+        // Given
+        var aggregator = new ClickAggregator(List.of(flushed::add), meterRegistry, 100);
+        aggregator.record("abc123");
+        aggregator.record("xyz789");
+        aggregator.flush();
+
+        // When
+        for (int i = 0; i < 60; i++) {
+            aggregator.record("xyz789");
+            aggregator.flush();
+        }
+
+        // Then
+        assertEquals(1, aggregator.trackedCodes());
+        assertEquals(61, flushed.size());
+    }
+
+    @Test
+    void shouldKeepFlushingOtherSinksWhenOneFails() {
+        // Given
+        ClickCountSink failing = counts -> {
+            throw new IllegalStateException("down");
+        };
+        var aggregator = new ClickAggregator(List.of(failing, flushed::add), meterRegistry, 100);
+        aggregator.record("abc123");
+
+        // When
+        aggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of("abc123", 1L)), flushed);
+        assertEquals(1, meterRegistry.get("clicks.persist").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void shouldRetryDeltasOfAFailedSinkOnTheNextFlush() {
+        // Given
+        var failures = new AtomicInteger(1);
+        ClickCountSink recovering = counts -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("down");
+            }
+            flushed.add(counts);
+        };
+        var aggregator = new ClickAggregator(List.of(recovering), meterRegistry, 100);
+        aggregator.record("abc123");
+        aggregator.flush();
+
+        // When
+        aggregator.record("abc123");
+        aggregator.record("xyz789");
+        aggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of("abc123", 2L, "xyz789", 1L)), flushed);
+    }
+
+    @Test
+    void shouldCountDeltasThatDoNotFitTheCarryOverAsDropped() {
+        // Given
+        ClickCountSink failing = counts -> {
+            throw new IllegalStateException("down");
+        };
+        var aggregator = new ClickAggregator(List.of(failing), meterRegistry, 1);
+        aggregator.record("abc123");
+        aggregator.record("xyz789");
+        aggregator.record("xyz789");
+        aggregator.flush();
+
+        // When
+        aggregator.flushOnShutdown();
+
+        // Then
+        assertEquals(3, meterRegistry.get("clicks.aggregator.dropped").counter().count());
+    }
+}
@@ -0,0 +1,57 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickBucketEntry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickBucketSinkTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Test
+    void shouldSplitABusyHourIntoCappedDocuments() {
+        // Given
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickBucket.class)).thenReturn(bulkOperations);
+        List<ClickBucketEntry> entries = new ArrayList<>();
+        for (int i = 0; i < ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT + 1; i++) {
+            entries.add(new ClickBucketEntry(i, UserAgentDictionary.NONE, null));
+        }
+        var key = ClickBucketSink.BucketKey.of("abc123", LocalDateTime.of(2024, 1, 15, 10, 30));
+
+        // When
+        ClickBucketSink.upsertBuckets(mongoTemplate, Map.of(key, entries));
+
+        // Then
+        var queries = ArgumentCaptor.forClass(Query.class);
+        var updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(queries.capture(), updates.capture());
+        verify(bulkOperations).execute();
+        var fullChunk = queries.getAllValues().get(0).getQueryObject().get("count", Document.class);
+        var remainder = queries.getAllValues().get(1).getQueryObject().get("count", Document.class);
+        assertEquals(0, fullChunk.get("$lte"));
+        assertEquals(ClickBucketSink.MAX_ENTRIES_PER_DOCUMENT - 1, remainder.get("$lte"));
+        assertEquals(1, updates.getAllValues().get(1).getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+}
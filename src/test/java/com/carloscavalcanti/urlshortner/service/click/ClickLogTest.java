@@ -0,0 +1,158 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickLogTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<ClickLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ClickLog clickLog : opened) {
+            clickLog.close();
+        }
+    }
+
+    @Test
+    void shouldReadBackCommittedClicks() throws IOException {
+        // Given
+        var clickLog = open(DataSize.ofMegabytes(1));
+        var clicks = List.of(
+                new ClickEvent("abc123", 1_700_000_000_000L, "Mozilla/5.0 ünïcode", "203.0.113.7"),
+                new ClickEvent("abc123", 1_700_000_000_001L, null, null));
+        clicks.forEach(clickLog::append);
+
+        // When
+        clickLog.commit();
+        List<ClickEvent> batch = new ArrayList<>();
+        long end = clickLog.read(clickLog.getAcknowledgedOffset(), 10, batch);
+
+        // Then
+        assertEquals(clicks, batch);
+        assertEquals(clickLog.getCommittedOffset(), end);
+    }
+
+    @Test
+    void shouldReplayUnacknowledgedClicksAfterRestart() throws IOException {
+        // Given
+        var clickLog = open(DataSize.ofMegabytes(1));
+        clickLog.append(click(1));
+        clickLog.append(click(2));
+        clickLog.commit();
+        long afterFirst = clickLog.read(0, 1, new ArrayList<>());
+        clickLog.acknowledge(afterFirst);
+        clickLog.close();
+
+        // When
+        var reopened = open(DataSize.ofMegabytes(1));
+        List<ClickEvent> batch = new ArrayList<>();
+        reopened.read(reopened.getAcknowledgedOffset(), 10, batch);
+
+        // Then
+        assertEquals(afterFirst, reopened.getAcknowledgedOffset());
+        assertEquals(List.of(click(2)), batch);
+    }
+
+    @Test
+    void shouldRotateSegmentsAndDeleteAcknowledgedOnes() throws IOException {
+        // Given
+        var clickLog = open(DataSize.ofBytes(1));
+        for (int i = 0; i < 5; i++) {
+            clickLog.append(click(i));
+            clickLog.commit();
+        }
+        List<ClickEvent> batch = new ArrayList<>();
+        long end = clickLog.read(0, 10, batch);
+        assertEquals(6, segmentCount());
+
+        // When
+        clickLog.acknowledge(end);
+
+        // Then
+        assertEquals(5, batch.size());
+        assertEquals(click(4), batch.get(4));
+        assertEquals(1, segmentCount());
+    }
+
+    @Test
+    void shouldTruncateATornTailOnOpen() throws IOException {
+        // Given
+        var clickLog = open(DataSize.ofMegabytes(1));
+        clickLog.append(click(1));
+        clickLog.commit();
+        long committed = clickLog.getCommittedOffset();
+        clickLog.close();
+        try (var segments = Files.list(directory)) {
+            var segment = segments.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        }
+
+        // When
+        var reopened = open(DataSize.ofMegabytes(1));
+        reopened.append(click(2));
+        reopened.commit();
+        List<ClickEvent> batch = new ArrayList<>();
+        reopened.read(0, 10, batch);
+
+        // Then
+        assertTrue(reopened.getCommittedOffset() > committed);
+        assertEquals(List.of(click(1), click(2)), batch);
+    }
+
+    @Test
+    void shouldWaitForTheCommitterWhenThePendingGroupIsFull() throws IOException {
+        // Given - room for a single click per group and a commit interval longer than the test
+        var clickLog = new ClickLog(new SimpleMeterRegistry(), true, directory, DataSize.ofMegabytes(1),
+                DataSize.ofBytes(64), Duration.ofMinutes(1), false);
+        clickLog.open();
+        opened.add(clickLog);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertTrue(clickLog.append(click(i), Duration.ofSeconds(5).toNanos()));
+        }
+        clickLog.commit();
+
+        // Then
+        List<ClickEvent> batch = new ArrayList<>();
+        clickLog.read(0, 100, batch);
+        assertEquals(20, batch.size());
+        assertEquals(click(19), batch.get(19));
+    }
+
+    private ClickLog open(final DataSize segmentSize) throws IOException {
+        var clickLog = new ClickLog(new SimpleMeterRegistry(), true, directory, segmentSize, DataSize.ofKilobytes(64),
+                Duration.ofMinutes(1), false);
+        clickLog.open();
+        opened.add(clickLog);
+        return clickLog;
+    }
+
+    private long segmentCount() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static ClickEvent click(final int i) {
+        return new ClickEvent("abc123", 1_700_000_000_000L + i, "Mozilla/5.0", "203.0.113." + i);
+    }
+}
@@ -0,0 +1,219 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.ClickEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickTrackingServiceTest {
+
+    private final List<ClickEvent> persisted = Collections.synchronizedList(new ArrayList<>());
+    private final ClickEventSink sink = persisted::addAll;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, Long> counted = new HashMap<>();
+    private final ClickCountSink countSink = counts ->
+            counts.forEach((shortCode, count) -> counted.merge(shortCode, count, Long::sum));
+    private final ClickAggregator clickAggregator = new ClickAggregator(List.of(countSink), new SimpleMeterRegistry(),
+            100);
+    private final ClickLog disabledLog = clickLog(false, Path.of("unused"));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldDrainQueuedClicksOnShutdown() {
+        // Given
+        var service = newService(100, 10, Duration.ofMinutes(1), BackPressurePolicy.DROP);
+        service.start();
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            assertTrue(service.track(click("abc123")));
+        }
+        service.stop();
+
+        // Then
+        assertEquals(25, persisted.size());
+        assertEquals(0, service.getQueueSize());
+        assertEquals(3, meterRegistry.get("clicks.persist").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldDropClicksWhenQueueIsFull() {
+        // Given - workers not started so nothing drains the queue
+        var service = newService(2, 10, Duration.ofMinutes(1), BackPressurePolicy.DROP);
+
+        // When
+        service.track(click("abc123"));
+        service.track(click("abc123"));
+        boolean accepted = service.track(click("abc123"));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1, service.getDroppedEvents());
+        clickAggregator.flush();
+        assertEquals(Map.of("abc123", 3L), counted);
+        assertEquals(2, meterRegistry.get("clicks.enqueue").tag("outcome", "accepted").timer().count());
+        assertEquals(1, meterRegistry.get("clicks.enqueue").tag("outcome", "dropped").timer().count());
+    }
+
+    @Test
+    void shouldDropAfterBlockTimeoutWhenQueueIsFull() {
+        // Given
+        var service = newService(1, 10, Duration.ofMinutes(1), BackPressurePolicy.BLOCK);
+        service.track(click("abc123"));
+
+        // When
+        boolean accepted = service.track(click("abc123"));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1, service.getDroppedEvents());
+    }
+
+    @Test
+    void shouldDrainQueuedClicksWithVirtualThreadWorkers() {
+        // Given
+        var service = new ClickTrackingService(List.of(sink), List.of(countSink), clickAggregator, disabledLog,
+                meterRegistry, 100, 10, Duration.ofMinutes(1), BackPressurePolicy.DROP, Duration.ofMillis(10), 2, true,
+                Duration.ofSeconds(5), Duration.ofMinutes(10), true);
+        service.start();
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            service.track(click("abc123"));
+        }
+        service.stop();
+
+        // Then
+        assertEquals(25, persisted.size());
+    }
+
+    @Test
+    void shouldRetryLoggedClicksOnlyOnTheSinkThatFailed() throws Exception {
+        // Given
+        var attempts = new AtomicInteger();
+        List<ClickEvent> retried = Collections.synchronizedList(new ArrayList<>());
+        ClickEventSink flaky = batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("down");
+            }
+            retried.addAll(batch);
+        };
+        var clickLog = clickLog(true, directory);
+        clickLog.open();
+        var service = new ClickTrackingService(List.of(sink, flaky), List.of(countSink), clickAggregator, clickLog,
+                meterRegistry, 100, 10, Duration.ofMillis(20), BackPressurePolicy.DROP, Duration.ofMillis(10), 1, true,
+                Duration.ofSeconds(5), Duration.ofMinutes(10), false);
+        service.start();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.track(click("abc123")));
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (clickLog.getAcknowledgedOffset() < clickLog.getCommittedOffset() || retried.size() < 5) {
+            assertTrue(System.nanoTime() < deadline, "clicks were not acknowledged in time");
+            Thread.sleep(10);
+        }
+        service.stop();
+        clickLog.close();
+
+        // Then
+        assertEquals(5, persisted.size());
+        assertEquals(5, retried.size());
+        assertTrue(attempts.get() >= 2);
+    }
+
+    @Test
+    void shouldCountLoggedClicksFromTheLog() throws Exception {
+        // Given
+        var clickLog = clickLog(true, directory);
+        clickLog.open();
+        var service = new ClickTrackingService(List.of(sink), List.of(countSink), clickAggregator, clickLog,
+                meterRegistry, 100, 10, Duration.ofMillis(20), BackPressurePolicy.DROP, Duration.ofMillis(10), 1, true,
+                Duration.ofSeconds(5), Duration.ofMinutes(10), false);
+        service.start();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.track(click("abc123")));
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (persisted.size() < 3 || clickLog.getAcknowledgedOffset() < clickLog.getCommittedOffset()) {
+            assertTrue(System.nanoTime() < deadline, "clicks were not acknowledged in time");
+            Thread.sleep(10);
+        }
+        service.stop();
+        clickLog.close();
+        clickAggregator.flush();
+
+        // Then
+        assertEquals(Map.of("abc123", 3L), counted);
+    }
+
+    @Test
+    void shouldDeadLetterLoggedClicksASinkKeepsRejecting() throws Exception {
+        // Given
+        ClickEventSink failing = batch -> {
+            throw new IllegalStateException("poisoned");
+        };
+        var clickLog = clickLog(true, directory);
+        clickLog.open();
+        var service = new ClickTrackingService(List.of(sink, failing), List.of(countSink), clickAggregator, clickLog,
+                meterRegistry, 100, 10, Duration.ofMillis(20), BackPressurePolicy.DROP, Duration.ofMillis(10), 1, true,
+                Duration.ofSeconds(5), Duration.ofMillis(50), false);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.track(click("abc123")));
+        }
+        clickLog.commit();
+        long committed = clickLog.getCommittedOffset();
+
+        // When
+        service.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (clickLog.getAcknowledgedOffset() < committed) {
+            assertTrue(System.nanoTime() < deadline, "clicks were not dead-lettered in time");
+            Thread.sleep(10);
+        }
+        service.stop();
+        clickLog.close();
+
+        // Then
+        assertEquals(5, persisted.size());
+        assertEquals(committed, Files.size(directory.resolve("dead-letter").resolve(String.format("%020d.log", 0))));
+        assertEquals(5, meterRegistry.get("clicks.log.dead-lettered").counters().stream()
+                .mapToDouble(Counter::count).sum());
+    }
+
+    private ClickTrackingService newService(final int capacity, final int batchSize,
+                                            final Duration flushInterval, final BackPressurePolicy policy) {
+        return new ClickTrackingService(List.of(sink), List.of(countSink), clickAggregator, disabledLog,
+                meterRegistry, capacity, batchSize, flushInterval, policy, Duration.ofMillis(10), 1, true,
+                Duration.ofSeconds(5), Duration.ofMinutes(10), false);
+    }
+
+    private static ClickLog clickLog(final boolean enabled, final Path directory) {
+        return new ClickLog(new SimpleMeterRegistry(), enabled, directory, DataSize.ofMegabytes(1),
+                DataSize.ofKilobytes(64), Duration.ofMillis(5), false);
+    }
+
+    private ClickEvent click(final String shortCode) {
+        return new ClickEvent(shortCode, LocalDateTime.now(), "Mozilla/5.0", "192.168.1.1");
+    }
+}
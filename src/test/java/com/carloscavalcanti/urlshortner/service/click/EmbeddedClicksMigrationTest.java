@@ -0,0 +1,62 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedClicksMigrationTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UserAgentDictionary userAgentDictionary;
+
+    @Test
+    void shouldSkipWhileAnotherNodeHoldsTheClaim() {
+        // Given
+        var migration = new EmbeddedClicksMigration(mongoTemplate, userAgentDictionary);
+        when(mongoTemplate.insert(any(Document.class), eq(EmbeddedClicksMigration.MIGRATIONS_COLLECTION)))
+                .thenThrow(new DuplicateKeyException("claimed"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class),
+                eq(EmbeddedClicksMigration.MIGRATIONS_COLLECTION)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // When
+        migration.run(null);
+
+        // Then
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(Document.class), any(String.class));
+    }
+
+    @Test
+    void shouldMarkTheMigrationCompletedAfterAClaimedRun() {
+        // Given
+        var migration = new EmbeddedClicksMigration(mongoTemplate, userAgentDictionary);
+        when(mongoTemplate.getCollectionName(UrlMapping.class)).thenReturn("url_mappings");
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("url_mappings"))).thenReturn(Stream.of());
+
+        // When
+        migration.run(null);
+
+        // Then
+        verify(mongoTemplate).insert(any(Document.class), eq(EmbeddedClicksMigration.MIGRATIONS_COLLECTION));
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class),
+                eq(EmbeddedClicksMigration.MIGRATIONS_COLLECTION));
+    }
+}
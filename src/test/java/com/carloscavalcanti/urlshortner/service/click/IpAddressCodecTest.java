@@ -0,0 +1,27 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpAddressCodecTest {
+
+    @Test
+    void shouldRoundTripIpv4AndIpv6() {
+        assertEquals(4, IpAddressCodec.pack("192.168.1.1").length);
+        assertEquals("192.168.1.1", IpAddressCodec.unpack(IpAddressCodec.pack("192.168.1.1")));
+        assertEquals(16, IpAddressCodec.pack("2001:db8::1").length);
+        assertEquals("2001:db8:0:0:0:0:0:1", IpAddressCodec.unpack(IpAddressCodec.pack("2001:db8::1%eth0")));
+    }
+
+    @Test
+    void shouldRejectAnythingThatIsNotAnAddressLiteral() {
+        assertNull(IpAddressCodec.pack(null));
+        assertNull(IpAddressCodec.pack("unknown"));
+        assertNull(IpAddressCodec.pack("256.1.1.1"));
+        assertNull(IpAddressCodec.pack("1.2.3"));
+        assertNull(IpAddressCodec.pack("example.com"));
+        assertNull(IpAddressCodec.pack("zz::1"));
+        assertNull(IpAddressCodec.unpack(new byte[] {1, 2, 3}));
+    }
+}
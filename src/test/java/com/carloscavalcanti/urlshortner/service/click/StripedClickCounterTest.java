@@ -0,0 +1,157 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripedClickCounterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Test
+    void shouldBufferCountsInRedisWithoutTouchingMongo() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, true, 4, 100);
+
+        // When
+        counter.write(Map.of("abc123", 2L, "xyz789", 1L));
+
+        // Then
+        verify(stringRedisTemplate).executePipelined(any(RedisCallback.class));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void shouldFallBackToMongoWhenRedisIsUnavailable() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, true, 4, 100);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)).thenReturn(bulkOperations);
+
+        // When
+        counter.write(Map.of("abc123", 2L, "xyz789", 1L));
+
+        // Then
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void shouldSumPendingStripes() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, true, 4, 100);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("3", null, "4", null));
+
+        // When
+        long pending = counter.getPendingCount("abc123");
+
+        // Then
+        assertEquals(7, pending);
+    }
+
+    @Test
+    void shouldRetryOnlyTheUpdatesAPartialBulkFailureReported() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, false, 4, 100);
+        var partialFailure = new BulkOperationException("partial", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(new BulkWriteError(91, "shutdown", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of()));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(partialFailure).thenReturn(null);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("abc123", 2L);
+        counts.put("xyz789", 5L);
+        counter.write(counts);
+
+        // When
+        long held = counter.getPendingCount("xyz789");
+        counter.flush();
+
+        // Then
+        assertEquals(5, held);
+        assertEquals(0, counter.getPendingCount("abc123"));
+        assertEquals(0, counter.getPendingCount("xyz789"));
+        verify(bulkOperations, times(3)).updateOne(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void shouldLeaveCountsWithTheCallerWhenNoneCouldBeWritten() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, false, 4, 100);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+
+        // When
+        var thrown = assertThrows(IllegalStateException.class, () -> counter.write(Map.of("abc123", 2L)));
+
+        // Then
+        assertTrue(thrown.getMessage().contains("1 click count(s)"));
+        assertEquals(0, counter.getPendingCount("abc123"));
+    }
+
+    @Test
+    void shouldHoldCountsLocallyWhenTheyCannotBeReturnedToRedis() {
+        // Given
+        var counter = new StripedClickCounter(mongoTemplate, stringRedisTemplate, true, 1, 100);
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.pop(StripedClickCounter.DIRTY_KEY, 100)).thenReturn(List.of("abc123"));
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.<Object>of("3"))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UrlMapping.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down")).thenReturn(null);
+        counter.flush();
+        when(setOperations.pop(StripedClickCounter.DIRTY_KEY, 100)).thenReturn(List.of());
+
+        // When
+        counter.flush();
+
+        // Then
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+    }
+}
@@ -0,0 +1,78 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import com.carloscavalcanti.urlshortner.model.RollupGranularity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HyperLogLogOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueVisitorCounterTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HyperLogLogOperations<String, String> hyperLogLogOperations;
+
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @BeforeEach
+    void setUp() {
+        uniqueVisitorCounter = new UniqueVisitorCounter(stringRedisTemplate, Duration.ofDays(90), Duration.ofDays(400));
+        when(stringRedisTemplate.opsForHyperLogLog()).thenReturn(hyperLogLogOperations);
+    }
+
+    @Test
+    void shouldMergeDailyWindowsOfTheRange() {
+        // Given
+        when(hyperLogLogOperations.size(any(String[].class))).thenReturn(42L);
+
+        // When
+        var uniques = uniqueVisitorCounter.countRange("abc123", RollupGranularity.DAY, FROM, FROM.plusDays(3));
+
+        // Then
+        assertEquals(42L, uniques);
+        verify(hyperLogLogOperations).size(
+                "uniques:{abc123}:DAY:2024-01-15T00:00",
+                "uniques:{abc123}:DAY:2024-01-16T00:00",
+                "uniques:{abc123}:DAY:2024-01-17T00:00");
+    }
+
+    @Test
+    void shouldUseHourlyWindowsForMinuteRanges() {
+        // Given
+        when(hyperLogLogOperations.size(any(String[].class))).thenReturn(7L);
+
+        // When
+        uniqueVisitorCounter.countRange("abc123", RollupGranularity.MINUTE, FROM.plusMinutes(30), FROM.plusMinutes(90));
+
+        // Then
+        verify(hyperLogLogOperations).size(
+                "uniques:{abc123}:HOUR:2024-01-15T00:00",
+                "uniques:{abc123}:HOUR:2024-01-15T01:00");
+    }
+
+    @Test
+    void shouldReturnNullWhenRedisIsUnavailable() {
+        // Given
+        when(hyperLogLogOperations.size(any(String[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When / Then
+        assertNull(uniqueVisitorCounter.countAllTime("abc123"));
+    }
+}
@@ -0,0 +1,28 @@
+package com.carloscavalcanti.urlshortner.service.click;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAgentFamilyTest {
+
+    @Test
+    void shouldReduceHeadersToTheirFamily() {
+        assertEquals("Chrome", UserAgentFamily.of(
+                "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36"));
+        assertEquals("Edge", UserAgentFamily.of(
+                "Mozilla/5.0 (Windows NT 10.0) AppleWebKit/537.36 Chrome/120.0.0.0 Safari/537.36 Edg/120.0.0.0"));
+        assertEquals("Safari Mobile", UserAgentFamily.of(
+                "Mozilla/5.0 (iPhone; CPU iPhone OS 17_0 like Mac OS X) Version/17.0 Mobile/15E148 Safari/604.1"));
+        assertEquals("Firefox", UserAgentFamily.of("Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Firefox/121.0"));
+        assertEquals("Bot", UserAgentFamily.of("Mozilla/5.0 (compatible; Googlebot/2.1)"));
+        assertEquals("curl", UserAgentFamily.of("curl/8.0"));
+    }
+
+    @Test
+    void shouldFallBackForMissingOrUnrecognisedHeaders() {
+        assertEquals(UserAgentFamily.UNKNOWN, UserAgentFamily.of(null));
+        assertEquals(UserAgentFamily.UNKNOWN, UserAgentFamily.of(" "));
+        assertEquals(UserAgentFamily.OTHER, UserAgentFamily.of("some-client/" + System.nanoTime()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.carloscavalcanti.urlshortner.service.dedup;
+
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMappingChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenDedupCacheTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ShortenDedupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ShortenDedupCache(stringRedisTemplate, true, false, 100, Duration.ofMinutes(10));
+        cache.put("hash1", "abc123");
+        cache.put("hash2", "def456");
+    }
+
+    @Test
+    void shouldEvictCodesDeactivatedOrDeletedElsewhere() {
+        // Given
+        var deactivated = new UrlMappingChange(UrlMappingChange.Type.UPDATED, "abc123",
+                new ResolvedUrl("https://www.example.com/a", false, null), Instant.now());
+        var deleted = new UrlMappingChange(UrlMappingChange.Type.DELETED, "def456", null, Instant.now());
+
+        // When
+        cache.onChange(deactivated);
+        cache.onChange(deleted);
+
+        // Then
+        assertNull(cache.get("hash1"));
+        assertNull(cache.get("hash2"));
+    }
+
+    @Test
+    void shouldKeepCodesThatAreStillAvailable() {
+        // Given
+        var updated = new UrlMappingChange(UrlMappingChange.Type.UPDATED, "abc123",
+                new ResolvedUrl("https://www.example.com/a", true, null), Instant.now());
+
+        // When
+        cache.onChange(updated);
+
+        // Then
+        assertEquals("abc123", cache.get("hash1"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.carloscavalcanti.urlshortner.service.dedup;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlNormalizerTest {
+
+    private final UrlNormalizer normalizer = new UrlNormalizer(true, true, true, true);
+
+    @Test
+    void shouldNormalizeEquivalentUrlsToTheSameForm() {
+        assertEquals("https://www.example.com/path?a=1&b=2",
+                normalizer.normalize("HTTPS://WWW.Example.COM:443/path/?b=2&a=1"));
+        assertEquals("http://example.com", normalizer.normalize("http://example.com:80/"));
+    }
+
+    @Test
+    void shouldKeepMeaningfulDifferences() {
+        assertEquals("http://example.com:8080/Path#Section", normalizer.normalize("http://example.com:8080/Path#Section"));
+        assertNotEquals(normalizer.fingerprint("https://example.com/a"), normalizer.fingerprint("https://example.com/b"));
+    }
+
+    @Test
+    void shouldProduceFixedLengthFingerprint() {
+        var fingerprint = normalizer.fingerprint("https://www.example.com/" + "x".repeat(5000));
+
+        assertEquals(64, fingerprint.length());
+        assertEquals(normalizer.fingerprint("https://www.example.com"), normalizer.fingerprint("https://www.example.com/"));
+    }
+
+    @Test
+    void shouldSeparateFingerprintsByRedirectTypeAndExpiry() {
+        var url = "https://www.example.com";
+        var expiresAt = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        assertEquals(normalizer.fingerprint(url), normalizer.fingerprint(url, null, null));
+        assertNotEquals(normalizer.fingerprint(url), normalizer.fingerprint(url, RedirectType.MOVED_PERMANENTLY, null));
+        assertNotEquals(normalizer.fingerprint(url), normalizer.fingerprint(url, null, expiresAt));
+        assertEquals(normalizer.fingerprint(url, null, expiresAt), normalizer.fingerprint(url + "/", null, expiresAt));
+    }
+
+    @Test
+    void shouldOnlyApplyEnabledSteps() {
+        var caseSensitive = new UrlNormalizer(false, false, false, false);
+
+        assertEquals("HTTPS://Example.com:443/path/?b=2&a=1",
+                caseSensitive.normalize("HTTPS://Example.com:443/path/?b=2&a=1"));
+    }
+
+    @Test
+    void shouldLeaveUnparseableUrlsUntouched() {
+        assertEquals("https://exa mple.com", normalizer.normalize("https://exa mple.com"));
+    }
+}
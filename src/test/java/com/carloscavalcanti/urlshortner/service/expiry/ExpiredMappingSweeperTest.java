@@ -0,0 +1,125 @@
+package com.carloscavalcanti.urlshortner.service.expiry;
+
+import com.carloscavalcanti.urlshortner.model.ClickBucket;
+import com.carloscavalcanti.urlshortner.model.ClickRollup;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import com.carloscavalcanti.urlshortner.service.cache.UrlResolutionCache;
+import com.carloscavalcanti.urlshortner.service.click.StripedClickCounter;
+import com.carloscavalcanti.urlshortner.service.click.UniqueVisitorCounter;
+import com.carloscavalcanti.urlshortner.service.dedup.ShortenDedupCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredMappingSweeperTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UrlResolutionCache urlResolutionCache;
+
+    @Mock
+    private ShortenDedupCache shortenDedupCache;
+
+    @Mock
+    private StripedClickCounter stripedClickCounter;
+
+    @Mock
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private ExpiredMappingSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new ExpiredMappingSweeper(mongoTemplate, urlResolutionCache, shortenDedupCache,
+                stripedClickCounter, uniqueVisitorCounter, stringRedisTemplate, true, Duration.ofMinutes(1),
+                Duration.ofHours(1), 2, 5);
+    }
+
+    @Test
+    void shouldPurgeClickDataAndCachesBeforeDeletingMappings() {
+        // Given
+        var first = UrlMapping.builder().id("1").shortCode("abc123").originalUrlHash("hash1").build();
+        var second = UrlMapping.builder().id("2").shortCode("def456").originalUrlHash("hash2").build();
+        givenLease(true);
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of());
+
+        // When
+        sweeper.sweep();
+
+        // Then
+        InOrder inOrder = inOrder(mongoTemplate, stripedClickCounter, uniqueVisitorCounter);
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(ClickBucket.class));
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(ClickRollup.class));
+        inOrder.verify(stripedClickCounter).discard(List.of("abc123", "def456"));
+        inOrder.verify(uniqueVisitorCounter).purge(List.of("abc123", "def456"));
+        inOrder.verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(UrlMapping.class));
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(UrlMapping.class));
+
+        verify(urlResolutionCache).invalidate("abc123");
+        verify(urlResolutionCache).invalidate("def456");
+        verify(shortenDedupCache).evict("hash1");
+        verify(shortenDedupCache).evict("hash2");
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(UrlMapping.class));
+    }
+
+    @Test
+    void shouldStopAfterMaxBatchesPerRun() {
+        // Given
+        var mapping = UrlMapping.builder().id("1").shortCode("abc123").build();
+        givenLease(true);
+        when(mongoTemplate.find(any(Query.class), eq(UrlMapping.class)))
+                .thenReturn(List.of(mapping, mapping));
+
+        // When
+        sweeper.sweep();
+
+        // Then
+        verify(mongoTemplate, times(5)).find(any(Query.class), eq(UrlMapping.class));
+        verify(shortenDedupCache, never()).evict(any());
+    }
+
+    @Test
+    void shouldSkipTheRunWhileAnotherNodeHoldsTheLease() {
+        // Given
+        givenLease(false);
+
+        // When
+        sweeper.sweep();
+
+        // Then
+        verifyNoInteractions(mongoTemplate, stripedClickCounter, uniqueVisitorCounter);
+    }
+
+    private void givenLease(final boolean acquired) {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(ExpiredMappingSweeper.LEASE_KEY), anyString(), eq(Duration.ofMinutes(1))))
+                .thenReturn(acquired);
+    }
+}
@@ -0,0 +1,49 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeistelPermutationTest {
+
+    @Test
+    void shouldBeABijectionOnTheDomain() {
+        // Given - a domain that is not a power of two exercises cycle-walking
+        long domainSize = 62L * 62 * 62;
+        var permutation = new FeistelPermutation(domainSize, 42L);
+        var seen = new BitSet((int) domainSize);
+
+        // When
+        for (long i = 0; i < domainSize; i++) {
+            long permuted = permutation.permute(i);
+
+            // Then
+            assertTrue(permuted >= 0 && permuted < domainSize);
+            assertFalse(seen.get((int) permuted), "duplicate output for " + i);
+            seen.set((int) permuted);
+            assertEquals(i, permutation.inverse(permuted));
+        }
+    }
+
+    @Test
+    void shouldScatterSequentialIds() {
+        var permutation = new FeistelPermutation(Base62.capacity(6), 42L);
+
+        var first = Base62.encode(permutation.permute(1), 6);
+        var second = Base62.encode(permutation.permute(2), 6);
+
+        assertEquals(6, first.length());
+        assertNotEquals(first.substring(0, 5), second.substring(0, 5));
+    }
+
+    @Test
+    void shouldRoundTripBase62() {
+        long value = Base62.capacity(6) - 1;
+
+        assertEquals("999999", Base62.encode(value, 6));
+        assertEquals(value, Base62.decode(Base62.encode(value, 6)));
+        assertEquals("AAAAAA", Base62.encode(0, 6));
+    }
+}
@@ -0,0 +1,73 @@
+package com.carloscavalcanti.urlshortner.service.shortcode;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RangeShortCodeGeneratorTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void shouldHandOutUniqueCodesAcrossBlocksFromConcurrentCallers() throws Exception {
+        // Given
+        var counter = new AtomicLong();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(RangeShortCodeGenerator.COUNTERS_COLLECTION)))
+                .thenAnswer(invocation -> new Document("value", counter.addAndGet(10)));
+        var generator = new RangeShortCodeGenerator(mongoTemplate, 6, 10, "42", true);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+
+        // When
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callers.add(executor.submit(() -> {
+                    for (int j = 0; j < 1_000; j++) {
+                        codes.add(generator.next());
+                    }
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get();
+            }
+        }
+
+        // Then - at most the block in use and one prefetched block are left over
+        assertEquals(8_000, codes.size());
+        assertTrue(counter.get() <= 8_000 + 20);
+    }
+
+    @Test
+    void shouldFailOnceTheCodeSpaceIsExhausted() {
+        // Given
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(RangeShortCodeGenerator.COUNTERS_COLLECTION)))
+                .thenReturn(new Document("value", Base62.capacity(1) + 10));
+        var generator = new RangeShortCodeGenerator(mongoTemplate, 1, 10, "42", true);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, generator::next);
+    }
+}
@@ -0,0 +1,144 @@
+package com.carloscavalcanti.urlshortner.service.snapshot;
+
+import com.carloscavalcanti.urlshortner.model.RedirectType;
+import com.carloscavalcanti.urlshortner.model.ResolvedUrl;
+import com.carloscavalcanti.urlshortner.model.UrlMapping;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotRedirectStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldFindEveryMappingWrittenToTheSnapshot() throws IOException {
+        // Given
+        var expiresAt = LocalDateTime.of(2030, 1, 1, 12, 0).truncatedTo(ChronoUnit.MILLIS);
+        var mappings = new ArrayList<UrlMapping>();
+        for (int i = 0; i < 1000; i++) {
+            mappings.add(mapping(String.format("c%05d", i), "https://www.example.com/" + i));
+        }
+        mappings.add(UrlMapping.builder()
+                .shortCode("expiring")
+                .originalUrl("https://www.example.com/ünïcode?q=1")
+                .expiresAt(expiresAt)
+                .redirectType(RedirectType.TEMPORARY)
+                .build());
+        var path = directory.resolve("snapshot.bin");
+
+        // When
+        int written = RedirectSnapshotWriter.write(path, mappings.iterator(), Instant.now());
+        var snapshot = RedirectSnapshot.open(path);
+
+        // Then
+        assertEquals(1001, written);
+        assertEquals(1001, snapshot.getEntryCount());
+        for (int i = 0; i < 1000; i++) {
+            var resolved = snapshot.find(String.format("c%05d", i));
+            assertNotNull(resolved);
+            assertEquals("https://www.example.com/" + i, resolved.originalUrl());
+            assertTrue(resolved.active());
+            assertNull(resolved.expiresAt());
+        }
+        var expiring = snapshot.find("expiring");
+        assertEquals(new ResolvedUrl("https://www.example.com/ünïcode?q=1", true, expiresAt,
+                RedirectType.TEMPORARY), expiring);
+        assertNull(snapshot.find("missing"));
+        assertNull(snapshot.find("c0000"));
+    }
+
+    @Test
+    void shouldOpenEmptySnapshot() throws IOException {
+        // Given
+        var path = directory.resolve("snapshot.bin");
+        RedirectSnapshotWriter.write(path, List.<UrlMapping>of().iterator(), Instant.now());
+
+        // When
+        var snapshot = RedirectSnapshot.open(path);
+
+        // Then
+        assertEquals(0, snapshot.getEntryCount());
+        assertNull(snapshot.find("abc123"));
+    }
+
+    @Test
+    void shouldPreferDeltasOverTheSnapshot() throws IOException {
+        // Given
+        var path = directory.resolve("snapshot.bin");
+        var createdAt = Instant.now();
+        RedirectSnapshotWriter.write(path, List.of(
+                mapping("abc123", "https://www.example.com/old"),
+                mapping("def456", "https://www.example.com/deleted")).iterator(), createdAt);
+        var store = new SnapshotRedirectStore(new SimpleMeterRegistry(), true, path, Duration.ofMinutes(1));
+        store.load();
+
+        // When
+        store.applyChange("abc123", new ResolvedUrl("https://www.example.com/new", true, null), createdAt);
+        store.applyChange("def456", null, createdAt);
+        store.applyChange("abc123", new ResolvedUrl("https://www.example.com/stale", true, null),
+                createdAt.minusSeconds(5));
+
+        // Then
+        assertEquals("https://www.example.com/new", store.find("abc123").originalUrl());
+        assertFalse(store.find("def456").isAvailable());
+        assertNull(store.find("ghi789"));
+    }
+
+    @Test
+    void shouldDropDeltasCoveredByANewerSnapshot() throws IOException {
+        // Given
+        var path = directory.resolve("snapshot.bin");
+        var firstExport = Instant.now().minus(Duration.ofHours(1));
+        RedirectSnapshotWriter.write(path, List.of(mapping("abc123", "https://www.example.com/old")).iterator(),
+                firstExport);
+        var store = new SnapshotRedirectStore(new SimpleMeterRegistry(), true, path, Duration.ofMinutes(1));
+        store.load();
+        store.applyChange("abc123", new ResolvedUrl("https://www.example.com/new", true, null),
+                firstExport.plusSeconds(10));
+        store.applyChange("def456", new ResolvedUrl("https://www.example.com/recent", true, null), Instant.now());
+
+        // When
+        RedirectSnapshotWriter.write(path, List.of(mapping("abc123", "https://www.example.com/exported")).iterator(),
+                Instant.now());
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().plusSeconds(1)));
+        store.reload();
+
+        // Then
+        assertEquals("https://www.example.com/exported", store.find("abc123").originalUrl());
+        assertEquals("https://www.example.com/recent", store.find("def456").originalUrl());
+    }
+
+    @Test
+    void shouldNotAnswerWhenDisabled() {
+        // Given
+        var store = new SnapshotRedirectStore(new SimpleMeterRegistry(), false, directory.resolve("snapshot.bin"),
+                Duration.ofMinutes(1));
+        store.applyChange("abc123", new ResolvedUrl("https://www.example.com", true, null), Instant.now());
+
+        // When
+        var resolved = store.find("abc123");
+
+        // Then
+        assertNull(resolved);
+        assertNull(store.replayFrom());
+    }
+
+    private static UrlMapping mapping(final String shortCode, final String originalUrl) {
+        return UrlMapping.builder().shortCode(shortCode).originalUrl(originalUrl).build();
+    }
+}